@@ -0,0 +1,86 @@
+package top.zway.fic.auth.cache;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.entity.DTO.UserDTO;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 用户认证信息本地缓存
+ *
+ * 设计原理：
+ * - 密码模式和刷新token模式都会调用loadUserByUsername，其中刷新token占大部分，
+ *   每次都查询用户表和角色表的关联结果
+ * - 按用户名缓存查询结果，过期时间较短，超过容量时淘汰最久未使用的用户
+ * - 只缓存存在的用户，不存在的用户名每次仍查询数据库
+ *
+ * 失效方式：
+ * - 用户服务修改密码、邮箱（用户名）或角色后向USER_DETAILS_CHANNEL发布用户名，
+ *   各认证实例收到后删除对应缓存（见RedisListenerConfig）
+ * - 登录时重新哈希密码后，本实例直接删除，同时发布通知让其他实例删除
+ * - 通知丢失或与查询交错时，最多在过期时间内使用旧数据
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserDetailsCache {
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${auth.user-cache.capacity:10000}")
+    private int capacity;
+
+    @Value("${auth.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private LRUCache<String, UserDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheUtil.newLRUCache(capacity, ttlSeconds * 1000);
+    }
+
+    /**
+     * 读取缓存，不刷新过期时间，保证变更最多延迟一个过期时间生效
+     *
+     * @param username 用户名
+     * @return 缓存的用户信息，未命中或已过期时为null
+     */
+    public UserDTO get(String username) {
+        return cache.get(username, false);
+    }
+
+    public void put(UserDTO userDTO) {
+        cache.put(userDTO.getUsername(), userDTO);
+    }
+
+    /**
+     * 删除本实例的缓存
+     *
+     * @param username 用户名
+     */
+    public void evict(String username) {
+        cache.remove(username);
+        log.debug("用户认证信息缓存已删除：{}", username);
+    }
+
+    /**
+     * 删除本实例的缓存，并通知其他认证实例删除
+     *
+     * @param username 用户名
+     */
+    public void evictAll(String username) {
+        evict(username);
+        try {
+            redisTemplate.convertAndSend(RedisConstant.USER_DETAILS_CHANNEL, username);
+        } catch (Exception e) {
+            log.warn("发布用户认证信息变更通知失败：{}", username, e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package top.zway.fic.auth.client;
+
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * reCAPTCHA siteverify客户端
+ *
+ * 设计原理：
+ * - 请求在独立的有界线程池中发出，调用方拿到CompletableFuture，不占用请求线程等待
+ * - 连接和读取都有超时，HTTP连接由JDK的keep-alive缓存复用
+ * - 队列满时立即失败，上游变慢时等待中的请求数有上限
+ *
+ * 熔断：
+ * - 连续失败（超时、网络错误、响应无法解析）达到阈值后熔断，熔断期间直接失败，不再请求上游
+ * - 熔断时间过后放行一个试探请求，成功则恢复，失败则继续熔断
+ * - 上游正常返回success=false属于验证不通过，不计为失败
+ *
+ * 地址可配置，测试时可指向本地的替身服务
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReCaptchaClient {
+    private static final String VERIFY_JSON_KEY = "success";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${reCaptcha.client.secret}")
+    private String secret;
+
+    @Value("${reCaptcha.client.verify-url:https://recaptcha.net/recaptcha/api/siteverify}")
+    private String verifyUrl;
+
+    @Value("${reCaptcha.client.connect-timeout-millis:1000}")
+    private int connectTimeoutMillis;
+
+    @Value("${reCaptcha.client.read-timeout-millis:2000}")
+    private int readTimeoutMillis;
+
+    @Value("${reCaptcha.client.threads:8}")
+    private int threads;
+
+    @Value("${reCaptcha.client.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${reCaptcha.client.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${reCaptcha.client.open-seconds:30}")
+    private long openSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "recaptcha-verify-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 校验前端提交的reCAPTCHA token
+     *
+     * @param response 前端组件生成的token
+     * @return 上游返回的success；熔断、队列满、超时或响应无法解析时异常完成
+     */
+    public CompletableFuture<Boolean> siteVerify(String response) {
+        if (!allowRequest()) {
+            return failed(new IllegalStateException("reCAPTCHA熔断中"));
+        }
+        CompletableFuture<Boolean> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> post(response), executor);
+        } catch (RejectedExecutionException e) {
+            onFailure();
+            return failed(new IllegalStateException("reCAPTCHA请求队列已满"));
+        }
+        return future.whenComplete((success, e) -> {
+            if (e == null) {
+                onSuccess();
+            } else {
+                onFailure();
+            }
+        });
+    }
+
+    private boolean post(String response) {
+        Map<String, Object> form = new HashMap<>(4);
+        form.put("secret", secret);
+        form.put("response", response);
+        try (HttpResponse httpResponse = HttpRequest.post(verifyUrl)
+                .form(form)
+                .setConnectionTimeout(connectTimeoutMillis)
+                .setReadTimeout(readTimeoutMillis)
+                .execute()) {
+            String body = httpResponse.body();
+            if (!httpResponse.isOk()) {
+                throw new IllegalStateException("reCAPTCHA响应异常，status: " + httpResponse.getStatus());
+            }
+            JsonNode jsonNode;
+            try {
+                jsonNode = objectMapper.readTree(body);
+            } catch (Exception e) {
+                throw new IllegalStateException("解析json失败,json：" + body, e);
+            }
+            if (jsonNode == null || jsonNode.get(VERIFY_JSON_KEY) == null) {
+                throw new IllegalStateException("解析json失败,json：" + body);
+            }
+            return jsonNode.get(VERIFY_JSON_KEY).asBoolean();
+        }
+    }
+
+    /**
+     * 熔断期间拒绝；熔断时间已过时只放行一个试探请求
+     */
+    private synchronized boolean allowRequest() {
+        if (openUntil == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < openUntil || trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (openUntil != 0) {
+            log.info("reCAPTCHA恢复正常，关闭熔断");
+        }
+        consecutiveFailures = 0;
+        openUntil = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || (openUntil == 0 && consecutiveFailures >= failureThreshold)) {
+            openUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(openSeconds);
+            trialInFlight = false;
+            log.warn("reCAPTCHA连续失败{}次，熔断{}秒", consecutiveFailures, openSeconds);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
@@ -0,0 +1,82 @@
+package top.zway.fic.auth.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import top.zway.fic.auth.crypto.JwtKeySet;
+import top.zway.fic.auth.service.TokenRevocationService;
+import top.zway.fic.base.constant.AuthConstant;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用JwtKeySet签名和验签的JWT转换器
+ * 父类只支持单个密钥且不写入kid，这里只替换签名和验签，claims的转换仍由父类完成
+ * 解析refresh token时检查是否已撤销，退出登录或修改密码后不能再换取新token
+ */
+public class KeySetJwtAccessTokenConverter extends JwtAccessTokenConverter {
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final JwtKeySet jwtKeySet;
+    private final TokenRevocationService tokenRevocationService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public KeySetJwtAccessTokenConverter(JwtKeySet jwtKeySet, TokenRevocationService tokenRevocationService) {
+        this.jwtKeySet = jwtKeySet;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    /**
+     * 验签并解析claims，供退出登录时取出jti和过期时间
+     * 不检查是否已撤销，重复退出登录时已撤销的refresh token仍能解析
+     *
+     * @param token access token或refresh token
+     * @return claims
+     * @throws InvalidTokenException 签名无效
+     */
+    public Map<String, Object> readClaims(String token) {
+        String content = jwtKeySet.verify(token);
+        Map<String, Object> map;
+        try {
+            map = objectMapper.readValue(content, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+        // 与父类一致，exp统一为Long
+        if (map.get(EXP) instanceof Integer) {
+            map.put(EXP, ((Integer) map.get(EXP)).longValue());
+        }
+        return map;
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        try {
+            String content = objectMapper.writeValueAsString(getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+            return jwtKeySet.sign(content);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot convert access token to JSON", e);
+        }
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        Map<String, Object> map = readClaims(token);
+        // 带ati的是refresh token，换取新token前检查是否已撤销
+        if (map.containsKey(ATI) && map.get(EXP) instanceof Long) {
+            long issuedAt = TimeUnit.SECONDS.toMillis((Long) map.get(EXP) - AuthConstant.REFRESH_TOKEN_VALIDITY_SECONDS);
+            Object id = map.get("id");
+            if (tokenRevocationService.isRevoked((String) map.get(JTI),
+                    id instanceof Number ? ((Number) id).longValue() : null, issuedAt)) {
+                throw new InvalidTokenException("refresh token已撤销");
+            }
+        }
+        return map;
+    }
+}
@@ -14,8 +14,9 @@ import org.springframework.security.oauth2.config.annotation.web.configurers.Aut
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
-import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
+import top.zway.fic.auth.crypto.JwtKeySet;
+import top.zway.fic.auth.service.TokenRevocationService;
 import top.zway.fic.auth.service.impl.UserServiceImpl;
 import top.zway.fic.base.constant.AuthConstant;
 
@@ -84,6 +85,18 @@ public class Oauth2ServerConfig extends AuthorizationServerConfigurerAdapter {
      */
     private final JwtTokenEnhancer jwtTokenEnhancer;
 
+    /**
+     * JWT 签名密钥集合
+     * 所有认证实例共用，按 kid 轮换，签名和验签都经过它
+     */
+    private final JwtKeySet jwtKeySet;
+
+    /**
+     * Token 撤销服务
+     * 刷新 Token 时检查 Refresh Token 是否已在退出登录或修改密码时被撤销
+     */
+    private final TokenRevocationService tokenRevocationService;
+
     /**
      * 配置 OAuth2 客户端详情
      *
@@ -127,10 +140,10 @@ public class Oauth2ServerConfig extends AuthorizationServerConfigurerAdapter {
      * 2. JwtAccessTokenConverter：将 Token 转换为 JWT 格式并签名
      *
      * JWT 签名机制：
-     * - 使用非对称密钥对（RSA）进行签名
+     * - 使用非对称密钥对（默认 ES256，可配置为 RS256）进行签名
      * - 私钥用于签名（只有认证服务器拥有）
-     * - 公钥用于验证（其他服务可以获取）
-     * - 确保 Token 不可伪造，同时支持分布式验证
+     * - 公钥用于验证（其他服务可以获取），Token 头部的 kid 指明使用哪个公钥
+     * - 确保 Token 不可伪造，同时支持分布式验证和密钥轮换
      *
      * @param endpoints 端点配置器
      */
@@ -193,18 +206,22 @@ public class Oauth2ServerConfig extends AuthorizationServerConfigurerAdapter {
      *
      * 签名验证流程：
      * 1. 其他服务接收到 JWT Token
-     * 2. 使用公钥验证签名的有效性
+     * 2. 按头部的 kid 选择公钥验证签名的有效性
      * 3. 解析 Payload 获取用户信息
      * 4. 检查 Token 是否过期
      *
+     * 密钥轮换：
+     * - 签名和验签交给 JwtKeySet，轮换期间新旧密钥同时可用于验签
+     * - 刷新 Token 时用旧密钥签发的 Refresh Token 仍能通过验证
+     *
+     * 撤销：
+     * - 已撤销的 Refresh Token 解析时直接失败，不能再换取新的 Access Token
+     *
      * @return JWT 访问令牌转换器实例
      */
     @Bean
-    public JwtAccessTokenConverter accessTokenConverter() {
-        JwtAccessTokenConverter jwtAccessTokenConverter = new JwtAccessTokenConverter();
-        // 设置用于 JWT 签名的密钥对
-        jwtAccessTokenConverter.setKeyPair(keyPair());
-        return jwtAccessTokenConverter;
+    public KeySetJwtAccessTokenConverter accessTokenConverter() {
+        return new KeySetJwtAccessTokenConverter(jwtKeySet, tokenRevocationService);
     }
 
     /**
@@ -228,10 +245,14 @@ public class Oauth2ServerConfig extends AuthorizationServerConfigurerAdapter {
      * 密钥对生成命令（如需重新生成）：
      * keytool -genkeypair -alias jwt -keyalg RSA -keypass 123456 -keystore jwt.jks -storepass 123456
      *
+     * 当前用途：
+     * - JwtKeySet 把它作为旧密钥（kid 为 legacy），验证轮换前签发的 Token
+     * - 静态方法：JwtKeySet 依赖此 Bean，而本配置类又依赖 JwtKeySet，避免循环依赖
+     *
      * @return RSA 密钥对实例
      */
     @Bean
-    public KeyPair keyPair() {
+    public static KeyPair keyPair() {
         // 从 classpath 下的证书中获取密钥对
         KeyStoreKeyFactory keyStoreKeyFactory = new KeyStoreKeyFactory(
                 new ClassPathResource("jwt.jks"),  // JKS 文件路径
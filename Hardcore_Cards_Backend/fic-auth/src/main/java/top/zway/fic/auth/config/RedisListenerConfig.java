@@ -0,0 +1,37 @@
+package top.zway.fic.auth.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import top.zway.fic.auth.cache.UserDetailsCache;
+import top.zway.fic.base.constant.RedisConstant;
+
+/**
+ * Redis订阅配置
+ *
+ * 订阅内容：
+ * - USER_DETAILS_CHANNEL：用户认证信息变更，消息内容为用户名，收到后删除本地缓存
+ *
+ * 消息按RedisTemplate的值序列化方式发布，这里用同一个序列化器解析
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       RedisTemplate<String, Object> redisTemplate,
+                                                                       UserDetailsCache userDetailsCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            Object username = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (username != null) {
+                userDetailsCache.evict(username.toString());
+            }
+        }, new ChannelTopic(RedisConstant.USER_DETAILS_CHANNEL));
+        return container;
+    }
+}
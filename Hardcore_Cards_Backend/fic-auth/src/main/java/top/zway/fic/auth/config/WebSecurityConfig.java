@@ -2,14 +2,17 @@ package top.zway.fic.auth.config;
 
 import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.crypto.BoundedPasswordEncoder;
+import top.zway.fic.redis.util.RedisUtils;
 
 /**
  * Spring Security Web安全配置类
@@ -53,6 +56,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 // 用途：前端需要获取公钥来加密敏感数据（如密码）后再传输
                 .antMatchers("/rsa/publicKey").permitAll()
                 .antMatchers("/oauth/rsa").permitAll()
+                .antMatchers("/oauth/ecdh").permitAll()
 
                 // 放行RPC解密接口 - 微服务间通信的解密服务
                 // 用途：其他微服务调用此服务进行数据解密，内部服务间通信
@@ -62,6 +66,11 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 // 用途：注册、登录等场景的防机器人验证，前端需要直接访问
                 .antMatchers("/rpc/recaptcha/verify").permitAll()
 
+                // 放行token撤销接口 - 退出登录和修改密码后撤销token
+                // 用途：退出登录时token以表单参数提交并在接口内验签；修改密码时由用户服务RPC调用
+                .antMatchers("/oauth/logout").permitAll()
+                .antMatchers("/rpc/token/revoke-user").permitAll()
+
                 // 其他所有请求都需要通过认证
                 // 原理：除了上述白名单接口外，所有API都需要提供有效的OAuth2 token
                 .anyRequest().authenticated()
@@ -103,11 +112,34 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
      * - 加密强度高，计算复杂度大，抵抗暴力破解
      * - 自适应算法，可以根据硬件性能调整加密轮数
      *
+     * 隔离设计：
+     * - 哈希计算在独立的有界线程池中执行，登录高峰不会占满Tomcat线程
+     * - 队列满时快速失败，返回限流提示
+     * - 已有哈希的强度低于当前强度时，登录成功后由UserServiceImpl重新哈希
+     * - 未配置强度时，第一个测量的实例把结果存入Redis，认证和用户服务的所有实例统一使用
+     *
+     * @param settings 密码哈希配置
+     * @param redisUtils 共享测量的强度
      * @return BCrypt密码编码器
      */
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(BoundedPasswordEncoder.Settings settings, RedisUtils redisUtils) {
+        return new BoundedPasswordEncoder(settings, measured -> {
+            redisUtils.setIfAbsent(RedisConstant.PASSWORD_HASH_STRENGTH, measured);
+            Object shared = redisUtils.get(RedisConstant.PASSWORD_HASH_STRENGTH);
+            return shared instanceof Number ? ((Number) shared).intValue() : measured;
+        });
+    }
+
+    /**
+     * 密码哈希配置，对应password.hashing
+     *
+     * @return 密码哈希配置
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @ConfigurationProperties(prefix = "password.hashing")
+    public BoundedPasswordEncoder.Settings passwordHashingSettings() {
+        return new BoundedPasswordEncoder.Settings();
     }
 
     /**
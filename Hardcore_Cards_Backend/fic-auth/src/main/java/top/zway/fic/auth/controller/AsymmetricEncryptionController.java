@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import top.zway.fic.auth.service.AsymmetricEncryptionService;
+import top.zway.fic.base.entity.VO.EcdhKeyVO;
 import top.zway.fic.base.entity.VO.RsaKeyVO;
 import top.zway.fic.base.result.R;
 
@@ -67,6 +68,21 @@ public class AsymmetricEncryptionController {
         return R.success(asymmetricEncryptionService.generateKeyPair());
     }
 
+    /**
+     * 生成ECDH临时密钥接口
+     *
+     * 与/oauth/rsa用法相同，区别在于加密方式：
+     * - 前端用ECDH协商出AES密钥，以AES-GCM加密密码
+     * - 提交格式为"前端公钥.IV.密文"，后端按格式自动选择解密方式
+     * - 密钥生成和解密都比RSA快得多，RSA方式保留兼容旧前端
+     *
+     * @return 包含ECDH公钥、UUID和曲线名的响应对象
+     */
+    @GetMapping("/oauth/ecdh")
+    public R<EcdhKeyVO> generateEcdhKey() {
+        return R.success(asymmetricEncryptionService.generateEcdhKey());
+    }
+
     /**
      * RPC解密接口
      *
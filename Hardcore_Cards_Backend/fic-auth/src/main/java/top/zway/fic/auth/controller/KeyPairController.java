@@ -1,20 +1,17 @@
 package top.zway.fic.auth.controller;
 
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import top.zway.fic.auth.crypto.JwtKeySet;
 
-import java.security.KeyPair;
-import java.security.interfaces.RSAPublicKey;
 import java.util.Map;
 
 /**
  * JWT密钥对控制器
  *
  * 主要功能：
- * 1. 暴露JWT签名验证所需的RSA公钥
+ * 1. 暴露JWT签名验证所需的公钥（所有未删除的签名密钥，按kid区分）
  * 2. 为其他微服务提供JWT token验证能力
  * 3. 支持标准的JWK（JSON Web Key）格式
  *
@@ -32,19 +29,19 @@ import java.util.Map;
 public class KeyPairController {
 
     /**
-     * JWT签名密钥对
-     * 从OAuth2ServerConfig配置类中注入的RSA密钥对
+     * JWT签名密钥集合
      * 私钥用于JWT签名，公钥用于JWT验证
+     * 轮换期间同时包含即将启用、正在使用和已被替换的密钥
      */
     @Autowired
-    private KeyPair keyPair;
+    private JwtKeySet jwtKeySet;
 
     /**
      * 获取JWT验证公钥
      *
      * 功能说明：
-     * 1. 提取RSA密钥对中的公钥部分
-     * 2. 将公钥转换为标准JWK格式
+     * 1. 取出密钥集合中的全部公钥
+     * 2. 每个公钥带kid和alg，网关按token头部的kid选择公钥
      * 3. 返回JSON格式的公钥信息
      *
      * JWK格式优势：
@@ -55,8 +52,18 @@ public class KeyPairController {
      * 返回格式示例：
      * {
      *   "keys": [{
+     *     "kty": "EC",
+     *     "use": "sig",
+     *     "kid": "ES256-1760860800000",
+     *     "alg": "ES256",
+     *     "crv": "P-256",
+     *     "x": "公钥x坐标",
+     *     "y": "公钥y坐标"
+     *   }, {
      *     "kty": "RSA",
      *     "use": "sig",
+     *     "kid": "legacy",
+     *     "alg": "RS256",
      *     "n": "公钥模数",
      *     "e": "公钥指数"
      *   }]
@@ -66,14 +73,8 @@ public class KeyPairController {
      */
     @GetMapping("/rsa/publicKey")
     public Map<String, Object> getKey() {
-        // 从密钥对中提取RSA公钥
-        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-
-        // 构建RSA JWK对象
-        RSAKey key = new RSAKey.Builder(publicKey).build();
-
-        // 转换为JWK Set格式并返回JSON对象
-        return new JWKSet(key).toJSONObject();
+        // 只包含公钥部分
+        return jwtKeySet.getPublicJwkSet().toJSONObject();
     }
 
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import top.zway.fic.auth.service.ReCaptchaVerificationService;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * reCAPTCHA验证RPC控制器
  *
@@ -66,14 +68,18 @@ public class ReCaptchaRpcController {
      *
      * 注意事项：
      * - 此接口可能被频繁调用，需要注意性能
-     * - 网络异常可能影响验证结果，需要合理的超时设置
+     * - 网络异常可能影响验证结果，连接和读取都有超时，上游持续失败时熔断
      * - 开发环境可能需要绕过验证，便于调试
      *
+     * 异步处理：
+     * - 返回CompletableFuture，等待Google响应期间Tomcat线程被释放
+     * - 上游变慢不会占满请求线程
+     *
      * @param token Google reCAPTCHA返回的验证token
      * @return 验证结果，true表示通过，false表示失败
      */
     @PostMapping("/rpc/recaptcha/verify")
-    public Boolean verify(@RequestParam("token") String token) {
-        return reCaptchaVerificationService.verify(token);
+    public CompletableFuture<Boolean> verify(@RequestParam("token") String token) {
+        return reCaptchaVerificationService.verifyAsync(token);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package top.zway.fic.auth.controller;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import top.zway.fic.auth.config.KeySetJwtAccessTokenConverter;
+import top.zway.fic.auth.service.TokenRevocationService;
+import top.zway.fic.base.result.R;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token撤销控制器
+ *
+ * 主要功能：
+ * 1. 退出登录：撤销前端持有的access token和refresh token
+ * 2. RPC：用户服务修改、重置密码后撤销该用户的全部token
+ *
+ * 生效方式：
+ * - 撤销记录写入Redis并发布通知，网关更新布隆过滤器后拒绝已撤销的access token
+ * - 已撤销的refresh token在本服务解析时直接失败
+ */
+@RestController
+@RequiredArgsConstructor
+public class TokenRevocationController {
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final KeySetJwtAccessTokenConverter accessTokenConverter;
+
+    /**
+     * 退出登录
+     *
+     * 参数说明：
+     * - 网关对/api/oauth/**不转发Authorization请求头，token以表单参数提交
+     * - token需验签通过，只撤销本服务签发的token
+     *
+     * @param accessToken 前端持有的access token
+     * @param refreshToken 前端持有的refresh token
+     * @return 撤销结果
+     */
+    @PostMapping("/oauth/logout")
+    public R logout(@RequestParam(value = "access_token", required = false) String accessToken,
+                    @RequestParam(value = "refresh_token", required = false) String refreshToken) {
+        if (StrUtil.isBlank(accessToken) && StrUtil.isBlank(refreshToken)) {
+            return R.failed("token不能为空");
+        }
+        revoke(accessToken);
+        revoke(refreshToken);
+        return R.success();
+    }
+
+    /**
+     * 撤销用户此前签发的全部token
+     *
+     * @param userId 用户id
+     * @return 是否成功
+     */
+    @PostMapping("/rpc/token/revoke-user")
+    public Boolean revokeUser(@RequestParam("userId") Long userId) {
+        tokenRevocationService.revokeUser(userId);
+        return true;
+    }
+
+    private void revoke(String token) {
+        if (StrUtil.isBlank(token)) {
+            return;
+        }
+        Map<String, Object> claims = accessTokenConverter.readClaims(token);
+        Object exp = claims.get("exp");
+        if (exp instanceof Number) {
+            tokenRevocationService.revokeToken((String) claims.get("jti"),
+                    TimeUnit.SECONDS.toMillis(((Number) exp).longValue()));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package top.zway.fic.auth.crypto;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.List;
+
+/**
+ * 临时ECDH密钥协商 + AES-GCM加密
+ *
+ * 握手流程：
+ * 1. 服务端生成临时P-256密钥对，下发公钥和uuid
+ * 2. 前端生成自己的临时P-256密钥对，与服务端公钥做ECDH得到共享密钥
+ * 3. 共享密钥做SHA-256作为AES-256密钥，随机12字节IV，以uuid作为附加认证数据加密密码
+ * 4. 提交内容格式：前端公钥.IV.密文（均为Base64，密文含16字节认证标签）
+ *
+ * 与RSA方式相比：
+ * - 密钥生成和协商都是椭圆曲线运算，比RSA私钥运算快一个数量级
+ * - GCM带完整性校验，密文被篡改或uuid不匹配时解密失败
+ * - 浏览器WebCrypto原生支持（ECDH P-256、AES-GCM）
+ */
+public final class EcdhCipher {
+    public static final String CURVE = "P-256";
+
+    private static final String ALGORITHM = "EC";
+    private static final String CURVE_SPEC = "secp256r1";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+    private static final char SEPARATOR = '.';
+
+    private EcdhCipher() {
+    }
+
+    /**
+     * 判断提交内容是否为ECDH格式
+     * RSA密文为标准Base64，不含分隔符
+     */
+    public static boolean isEcdhContent(String content) {
+        return content != null && content.indexOf(SEPARATOR) >= 0;
+    }
+
+    public static KeyPair generateKeyPair() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(ALGORITHM);
+        generator.initialize(new ECGenParameterSpec(CURVE_SPEC));
+        return generator.generateKeyPair();
+    }
+
+    public static PrivateKey parsePrivateKey(String base64) throws GeneralSecurityException {
+        return KeyFactory.getInstance(ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(Base64.decode(base64)));
+    }
+
+    /**
+     * 解密
+     *
+     * @param serverPrivateKey 服务端临时私钥
+     * @param uuid             握手标识，作为附加认证数据
+     * @param content          前端公钥.IV.密文
+     * @return 明文
+     * @throws GeneralSecurityException 格式错误、密钥不匹配或密文被篡改
+     */
+    public static String decrypt(PrivateKey serverPrivateKey, String uuid, String content) throws GeneralSecurityException {
+        List<String> parts = StrUtil.split(content, SEPARATOR);
+        if (parts.size() != 3) {
+            throw new GeneralSecurityException("ECDH密文格式错误");
+        }
+        PublicKey clientPublicKey = KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(Base64.decode(parts.get(0))));
+        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+        keyAgreement.init(serverPrivateKey);
+        keyAgreement.doPhase(clientPublicKey, true);
+        byte[] aesKey = MessageDigest.getInstance("SHA-256").digest(keyAgreement.generateSecret());
+
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(aesKey, "AES"),
+                new GCMParameterSpec(TAG_BITS, Base64.decode(parts.get(1))));
+        cipher.updateAAD(uuid.getBytes(StandardCharsets.UTF_8));
+        return new String(cipher.doFinal(Base64.decode(parts.get(2))), StandardCharsets.UTF_8);
+    }
+}
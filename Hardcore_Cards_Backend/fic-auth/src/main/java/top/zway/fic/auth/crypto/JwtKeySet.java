@@ -0,0 +1,422 @@
+package top.zway.fic.auth.crypto;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSADecrypter;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.AuthConstant;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT签名密钥集合
+ *
+ * 设计原理：
+ * - 密钥存放在Redis中，所有认证实例共用，任一实例签发的token（含refresh token）其他实例都能验证
+ * - 每个密钥有kid，签发时写入token头部，验签时按kid选择公钥，网关同样按kid选择
+ * - 默认使用ES256（P-256），签名64字节，比RS256的256字节小，签名和验签也更快
+ *
+ * 轮换流程：
+ * 1. 最新的密钥创建超过轮换周期后，由一个实例生成新密钥写入Redis
+ * 2. 新密钥立即出现在公钥接口中，但经过激活延迟后才用于签名，
+ *    激活延迟大于网关刷新公钥的间隔，网关收到新token前已有新公钥
+ * 3. 被替换的旧密钥继续用于验签，直到refresh token有效期过后才删除
+ *
+ * 私钥保护：
+ * - 网关等其他服务也能访问这个Redis，私钥不能明文存放
+ * - Redis中只明文存放公钥，完整的JWK用jwt.jks的RSA公钥加密（RSA-OAEP-256 + A256GCM）后存放，
+ *   只有持有jwt.jks的认证服务能解密出私钥
+ * - 旧版本明文存放的密钥在下次刷新时改写为加密形式
+ *
+ * 兼容旧token：
+ * - jwt.jks中的RSA密钥作为旧密钥（kid为legacy）继续验签，不带kid的旧token按它验证
+ * - 首次部署时新密钥尚未激活，期间仍用旧密钥签名
+ * - 旧token全部过期后可关闭jwt.signing.legacy-key-enabled
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtKeySet {
+    public static final String LEGACY_KID = "legacy";
+
+    private static final long TICK_SECONDS = 60;
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_JWK = "jwk";
+    private static final String FIELD_PRIVATE_JWK = "privateJwk";
+
+    private final RedisUtils redisUtils;
+
+    /**
+     * jwt.jks中的RSA密钥对
+     */
+    private final KeyPair keyPair;
+
+    /**
+     * 新密钥的签名算法：ES256或RS256
+     */
+    @Value("${jwt.signing.algorithm:ES256}")
+    private String algorithm;
+
+    @Value("${jwt.signing.rotation-hours:168}")
+    private long rotationHours;
+
+    @Value("${jwt.signing.activation-delay-seconds:600}")
+    private long activationDelaySeconds;
+
+    @Value("${jwt.signing.legacy-key-enabled:true}")
+    private boolean legacyKeyEnabled;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        tick();
+        if (snapshot == null || snapshot.signer == null) {
+            throw new IllegalStateException("没有可用的JWT签名密钥");
+        }
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jwt-key-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 用当前签名密钥签名，头部带kid
+     *
+     * @param payload JSON格式的claims
+     * @return 紧凑格式的JWT
+     */
+    public String sign(String payload) {
+        Snapshot current = snapshot;
+        // 从Redis解析出的JWK中算法是通用的Algorithm类型，按名称转换
+        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.parse(current.signingKey.getAlgorithm().getName()))
+                .type(JOSEObjectType.JWT)
+                .keyID(current.signingKey.getKeyID())
+                .build();
+        JWSObject jwsObject = new JWSObject(header, new Payload(payload));
+        try {
+            jwsObject.sign(current.signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("JWT签名失败", e);
+        }
+        return jwsObject.serialize();
+    }
+
+    /**
+     * 按kid选择公钥验签，不带kid的token按旧密钥验证
+     *
+     * @param token 紧凑格式的JWT
+     * @return JSON格式的claims
+     * @throws InvalidTokenException 格式错误、密钥未知、算法与密钥不符或签名无效
+     */
+    public String verify(String token) {
+        JWSObject jwsObject;
+        try {
+            jwsObject = JWSObject.parse(token);
+        } catch (ParseException e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+        JWSHeader header = jwsObject.getHeader();
+        String kid = header.getKeyID() != null ? header.getKeyID() : LEGACY_KID;
+        Snapshot current = snapshot;
+        JWK jwk = current.keys.get(kid);
+        // 算法必须与密钥登记的一致，防止用其他算法伪造
+        if (jwk == null || !header.getAlgorithm().equals(jwk.getAlgorithm())) {
+            throw new InvalidTokenException("未知的签名密钥: " + kid);
+        }
+        try {
+            if (!jwsObject.verify(current.verifiers.get(kid))) {
+                throw new InvalidTokenException("签名无效");
+            }
+        } catch (JOSEException e) {
+            throw new InvalidTokenException("签名无效", e);
+        }
+        return jwsObject.getPayload().toString();
+    }
+
+    /**
+     * 所有可用于验签的公钥，包括尚未激活和已被替换但未删除的密钥
+     */
+    public JWKSet getPublicJwkSet() {
+        return snapshot.publicJwkSet;
+    }
+
+    /**
+     * 只在初始化和轮换线程上执行
+     */
+    private void tick() {
+        try {
+            List<StoredKey> storedKeys = load();
+            if (needRotation(storedKeys) || hasExpired(storedKeys) || hasPlaintext(storedKeys)) {
+                rotate();
+                storedKeys = load();
+            }
+            snapshot = buildSnapshot(storedKeys);
+        } catch (Exception e) {
+            log.error("刷新JWT签名密钥失败，继续使用已有的密钥", e);
+        }
+    }
+
+    private boolean needRotation(List<StoredKey> storedKeys) {
+        if (storedKeys.isEmpty()) {
+            return true;
+        }
+        StoredKey newest = storedKeys.get(storedKeys.size() - 1);
+        return newest.createdAt + TimeUnit.HOURS.toMillis(rotationHours) <= System.currentTimeMillis()
+                || !JWSAlgorithm.parse(algorithm).equals(newest.jwk.getAlgorithm());
+    }
+
+    /**
+     * 被替换的时间为下一个密钥的激活时间，之后再保留refresh token的有效期
+     */
+    private boolean hasExpired(List<StoredKey> storedKeys) {
+        long now = System.currentTimeMillis();
+        long retentionMillis = TimeUnit.SECONDS.toMillis(AuthConstant.REFRESH_TOKEN_VALIDITY_SECONDS);
+        for (int i = 0; i + 1 < storedKeys.size(); i++) {
+            if (activationTime(storedKeys.get(i + 1)) + retentionMillis < now) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPlaintext(List<StoredKey> storedKeys) {
+        for (StoredKey storedKey : storedKeys) {
+            if (storedKey.plaintext) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rotate() throws JOSEException {
+        if (!redisUtils.setIfAbsent(RedisConstant.JWT_KEY_ROTATION_LOCK, instanceId,
+                RedisConstant.JWT_KEY_ROTATION_LOCK_EXP_TIME)) {
+            return;
+        }
+        try {
+            // 取得锁后重新读取，其他实例可能刚完成轮换
+            List<StoredKey> storedKeys = load();
+            long now = System.currentTimeMillis();
+            long retentionMillis = TimeUnit.SECONDS.toMillis(AuthConstant.REFRESH_TOKEN_VALIDITY_SECONDS);
+            for (int i = 0; i + 1 < storedKeys.size(); i++) {
+                if (activationTime(storedKeys.get(i + 1)) + retentionMillis < now) {
+                    redisUtils.hdel(RedisConstant.JWT_KEYSET, storedKeys.get(i).jwk.getKeyID());
+                    log.info("删除过期的JWT签名密钥：{}", storedKeys.get(i).jwk.getKeyID());
+                }
+            }
+            for (StoredKey storedKey : storedKeys) {
+                if (storedKey.plaintext) {
+                    save(storedKey.createdAt, storedKey.jwk);
+                    log.info("JWT签名密钥{}改为加密存放", storedKey.jwk.getKeyID());
+                }
+            }
+            if (needRotation(storedKeys)) {
+                JWK jwk = generate(now);
+                save(now, jwk);
+                log.info("生成新的JWT签名密钥：{}，{}秒后用于签名", jwk.getKeyID(), activationDelaySeconds);
+            }
+        } finally {
+            if (instanceId.equals(redisUtils.get(RedisConstant.JWT_KEY_ROTATION_LOCK))) {
+                redisUtils.del(RedisConstant.JWT_KEY_ROTATION_LOCK);
+            }
+        }
+    }
+
+    /**
+     * 公钥明文存放，完整的JWK加密后存放
+     */
+    private void save(long createdAt, JWK jwk) throws JOSEException {
+        JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM),
+                new Payload(jwk.toJSONString()));
+        jweObject.encrypt(new RSAEncrypter((RSAPublicKey) keyPair.getPublic()));
+        Map<String, Object> value = new HashMap<>(4);
+        value.put(FIELD_CREATED_AT, createdAt);
+        value.put(FIELD_JWK, jwk.toPublicJWK().toJSONString());
+        value.put(FIELD_PRIVATE_JWK, jweObject.serialize());
+        redisUtils.hset(RedisConstant.JWT_KEYSET, jwk.getKeyID(), value);
+    }
+
+    private JWK decryptPrivateJwk(String encrypted) throws ParseException, JOSEException {
+        JWEObject jweObject = JWEObject.parse(encrypted);
+        jweObject.decrypt(new RSADecrypter(keyPair.getPrivate()));
+        return JWK.parse(jweObject.getPayload().toString());
+    }
+
+    private JWK generate(long now) throws JOSEException {
+        JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(algorithm);
+        String kid = jwsAlgorithm.getName() + "-" + now;
+        if (JWSAlgorithm.ES256.equals(jwsAlgorithm)) {
+            return new ECKeyGenerator(Curve.P_256)
+                    .keyID(kid).algorithm(jwsAlgorithm).keyUse(KeyUse.SIGNATURE).generate();
+        }
+        if (JWSAlgorithm.RS256.equals(jwsAlgorithm)) {
+            return new RSAKeyGenerator(2048)
+                    .keyID(kid).algorithm(jwsAlgorithm).keyUse(KeyUse.SIGNATURE).generate();
+        }
+        throw new IllegalStateException("不支持的JWT签名算法：" + algorithm);
+    }
+
+    /**
+     * 读取Redis中的密钥，按创建时间升序
+     */
+    private List<StoredKey> load() {
+        List<StoredKey> storedKeys = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : redisUtils.hmget(RedisConstant.JWT_KEYSET).entrySet()) {
+            try {
+                Map<?, ?> value = (Map<?, ?>) entry.getValue();
+                long createdAt = ((Number) value.get(FIELD_CREATED_AT)).longValue();
+                Object encrypted = value.get(FIELD_PRIVATE_JWK);
+                if (encrypted != null) {
+                    storedKeys.add(new StoredKey(createdAt, decryptPrivateJwk((String) encrypted), false));
+                    continue;
+                }
+                JWK jwk = JWK.parse((String) value.get(FIELD_JWK));
+                if (!jwk.isPrivate()) {
+                    log.warn("JWT签名密钥{}缺少私钥，忽略", entry.getKey());
+                    continue;
+                }
+                storedKeys.add(new StoredKey(createdAt, jwk, true));
+            } catch (Exception e) {
+                log.warn("无法解析JWT签名密钥：{}", entry.getKey(), e);
+            }
+        }
+        storedKeys.sort(Comparator.comparingLong(storedKey -> storedKey.createdAt));
+        return storedKeys;
+    }
+
+    /**
+     * 签名密钥取已激活的最新密钥；首次部署没有已激活的密钥时用旧密钥，旧密钥已关闭时用最新的密钥
+     */
+    private Snapshot buildSnapshot(List<StoredKey> storedKeys) throws JOSEException {
+        long now = System.currentTimeMillis();
+        List<JWK> jwks = new ArrayList<>();
+        JWK signingKey = null;
+        for (StoredKey storedKey : storedKeys) {
+            jwks.add(storedKey.jwk);
+            if (activationTime(storedKey) <= now) {
+                signingKey = storedKey.jwk;
+            }
+        }
+        if (legacyKeyEnabled) {
+            JWK legacyKey = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                    .privateKey((RSAPrivateKey) keyPair.getPrivate())
+                    .keyID(LEGACY_KID)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .build();
+            jwks.add(legacyKey);
+            if (signingKey == null) {
+                signingKey = legacyKey;
+            }
+        }
+        if (signingKey == null && !storedKeys.isEmpty()) {
+            signingKey = storedKeys.get(storedKeys.size() - 1).jwk;
+        }
+
+        Map<String, JWK> keys = new HashMap<>(jwks.size() * 2);
+        Map<String, JWSVerifier> verifiers = new HashMap<>(jwks.size() * 2);
+        for (JWK jwk : jwks) {
+            keys.put(jwk.getKeyID(), jwk);
+            verifiers.put(jwk.getKeyID(), jwk instanceof ECKey
+                    ? new ECDSAVerifier((ECKey) jwk) : new RSASSAVerifier((RSAKey) jwk));
+        }
+        JWSSigner signer = null;
+        if (signingKey != null) {
+            signer = signingKey instanceof ECKey
+                    ? new ECDSASigner((ECKey) signingKey) : new RSASSASigner((RSAKey) signingKey);
+        }
+        return new Snapshot(signingKey, signer, Collections.unmodifiableMap(keys),
+                Collections.unmodifiableMap(verifiers), new JWKSet(jwks).toPublicJWKSet());
+    }
+
+    private long activationTime(StoredKey storedKey) {
+        return storedKey.createdAt + TimeUnit.SECONDS.toMillis(activationDelaySeconds);
+    }
+
+    private static final class StoredKey {
+        private final long createdAt;
+        private final JWK jwk;
+        /**
+         * 旧版本明文存放的私钥
+         */
+        private final boolean plaintext;
+
+        private StoredKey(long createdAt, JWK jwk, boolean plaintext) {
+            this.createdAt = createdAt;
+            this.jwk = jwk;
+            this.plaintext = plaintext;
+        }
+    }
+
+    private static final class Snapshot {
+        private final JWK signingKey;
+        private final JWSSigner signer;
+        private final Map<String, JWK> keys;
+        private final Map<String, JWSVerifier> verifiers;
+        private final JWKSet publicJwkSet;
+
+        private Snapshot(JWK signingKey, JWSSigner signer, Map<String, JWK> keys,
+                         Map<String, JWSVerifier> verifiers, JWKSet publicJwkSet) {
+            this.signingKey = signingKey;
+            this.signer = signer;
+            this.keys = keys;
+            this.verifiers = verifiers;
+            this.publicJwkSet = publicJwkSet;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package top.zway.fic.auth.crypto;
+
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.crypto.asymmetric.AsymmetricAlgorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 预生成的RSA密钥对池
+ *
+ * 设计原理：
+ * - RSA密钥生成需要几十到几百毫秒CPU，登录高峰时在请求线程上生成会占满CPU
+ * - 后台线程持续生成密钥对放入有界队列，队列满时阻塞等待，取用时直接出队
+ * - 每个密钥对只被取出一次，不会重复下发
+ * - 池为空时退化为当场生成，并计入未命中次数
+ *
+ * 指标（actuator的metrics端点）：
+ * - auth.rsa.pool.depth：池中可用的密钥对数
+ * - auth.rsa.pool.refill.lag：池距上次填满已过去的秒数，填满时为0
+ * - auth.rsa.pool.miss：池为空时当场生成的次数
+ * - auth.rsa.pool.generate：生成一个密钥对的耗时
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RsaKeyPairPool {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.rsa-pool.capacity:200}")
+    private int capacity;
+
+    /**
+     * 补充线程数，0表示按CPU核数的一半
+     */
+    @Value("${auth.rsa-pool.refill-threads:0}")
+    private int refillThreads;
+
+    @Value("${auth.rsa-pool.key-size:2048}")
+    private int keySize;
+
+    private BlockingQueue<KeyPair> pool;
+    private ExecutorService executorService;
+    private volatile long lastFullTime;
+
+    private Counter missCounter;
+    private Timer generateTimer;
+
+    @PostConstruct
+    public void init() {
+        pool = new ArrayBlockingQueue<>(capacity);
+        lastFullTime = System.currentTimeMillis();
+        missCounter = Counter.builder("auth.rsa.pool.miss")
+                .description("池为空时当场生成密钥对的次数")
+                .register(meterRegistry);
+        generateTimer = Timer.builder("auth.rsa.pool.generate")
+                .description("生成一个RSA密钥对的耗时")
+                .register(meterRegistry);
+        Gauge.builder("auth.rsa.pool.depth", pool, BlockingQueue::size)
+                .description("池中可用的RSA密钥对数")
+                .register(meterRegistry);
+        Gauge.builder("auth.rsa.pool.refill.lag", this, RsaKeyPairPool::refillLagSeconds)
+                .description("池距上次填满已过去的秒数")
+                .register(meterRegistry);
+
+        int threads = refillThreads > 0 ? refillThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "rsa-key-pool-refill-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            // 低于请求线程的优先级，高峰时让出CPU
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(this::refill);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 取出一个密钥对
+     *
+     * @return 未被使用过的密钥对，池为空时当场生成
+     */
+    public KeyPair take() {
+        KeyPair keyPair = pool.poll();
+        if (keyPair != null) {
+            return keyPair;
+        }
+        missCounter.increment();
+        return generate();
+    }
+
+    private void refill() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                pool.put(generate());
+                if (pool.remainingCapacity() == 0) {
+                    lastFullTime = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("预生成RSA密钥对失败", e);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private KeyPair generate() {
+        return generateTimer.record(() -> SecureUtil.generateKeyPair(AsymmetricAlgorithm.RSA.getValue(), keySize));
+    }
+
+    private double refillLagSeconds() {
+        if (pool.remainingCapacity() == 0) {
+            return 0;
+        }
+        return (System.currentTimeMillis() - lastFullTime) / 1000.0;
+    }
+}
@@ -22,4 +22,12 @@ public interface UserAuthDao {
      * @return
      */
     List<ResourceRoleDO> listResourceRole();
+
+    /**
+     * 更新用户密码哈希，登录时BCrypt强度变化后重新哈希使用
+     * @param username
+     * @param password
+     * @return
+     */
+    int updatePasswordByUsername(@Param("username") String username, @Param("password") String password);
 }
@@ -11,6 +11,7 @@ import org.springframework.security.oauth2.common.exceptions.InvalidTokenExcepti
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import top.zway.fic.base.crypto.PasswordHashingBusyException;
 import top.zway.fic.base.result.R;
 import top.zway.fic.base.result.ResultCode;
 
@@ -99,6 +100,19 @@ public class AuthExceptionHandler {
         return R.failed(e.getMessage());
     }
 
+    /**
+     * 处理密码哈希繁忙异常
+     *
+     * 触发场景：登录高峰时密码校验线程池队列已满或等待超时
+     * 处理方式：快速返回限流提示，前端稍后重试
+     */
+    @ResponseStatus(HttpStatus.OK)
+    @ExceptionHandler({PasswordHashingBusyException.class})
+    public R handlePasswordHashingBusyException(PasswordHashingBusyException e) {
+        log.warn("密码校验繁忙: {}", e.getMessage());
+        return R.failed(ResultCode.FLOW_LIMITING);
+    }
+
     /**
      * 兜底异常处理器
      *
@@ -1,5 +1,6 @@
 package top.zway.fic.auth.service;
 
+import top.zway.fic.base.entity.VO.EcdhKeyVO;
 import top.zway.fic.base.entity.VO.RsaKeyVO;
 
 /**
@@ -9,6 +10,7 @@ import top.zway.fic.base.entity.VO.RsaKeyVO;
  * 1. RSA密钥对的生成和管理
  * 2. 基于UUID的密钥存储和检索机制
  * 3. 安全的数据加密和解密服务
+ * 4. ECDH临时密钥协商 + AES-GCM的快速握手方式，RSA方式保留兼容
  *
  * 设计原理：
  * - 每次生成全新的密钥对，避免密钥重用的安全风险
@@ -47,6 +49,22 @@ public interface AsymmetricEncryptionService {
      */
     RsaKeyVO generateKeyPair();
 
+    /**
+     * 生成ECDH临时密钥
+     *
+     * 功能描述：
+     * 1. 生成临时P-256密钥对，私钥存储到Redis
+     * 2. 返回服务端公钥和UUID给调用方
+     *
+     * 前端使用方式：
+     * 1. 生成自己的临时P-256密钥对，与服务端公钥做ECDH
+     * 2. 共享密钥做SHA-256作为AES-256-GCM密钥，以UUID作为附加认证数据加密密码
+     * 3. 提交"前端公钥.IV.密文"（均为Base64）和UUID，解密仍走decrypt
+     *
+     * @return EcdhKeyVO 包含公钥、UUID和曲线名的数据传输对象
+     */
+    EcdhKeyVO generateEcdhKey();
+
     /**
      * 使用UUID解密内容
      *
@@ -58,7 +76,7 @@ public interface AsymmetricEncryptionService {
      *
      * 参数说明：
      * - uuid: 私钥标识，由generateKeyPair方法返回
-     * - content: Base64编码的RSA加密内容
+     * - content: Base64编码的RSA加密内容，或ECDH格式的加密内容
      * - needDelete: 解密后是否删除私钥
      *   * true: 一次性使用，解密后立即删除私钥（推荐）
      *   * false: 保留私钥，直到Redis过期时间到达
@@ -1,10 +1,19 @@
 package top.zway.fic.auth.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface ReCaptchaVerificationService {
     /**
-     * 验证验证码
+     * 验证验证码，阻塞等待结果
      * @param captcha 验证码
      * @return 验证结果
      */
     boolean verify(String captcha);
+
+    /**
+     * 验证验证码，不阻塞调用线程
+     * @param captcha 验证码
+     * @return 验证结果，不会异常完成
+     */
+    CompletableFuture<Boolean> verifyAsync(String captcha);
 }
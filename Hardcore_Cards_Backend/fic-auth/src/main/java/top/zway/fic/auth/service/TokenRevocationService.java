@@ -0,0 +1,25 @@
+package top.zway.fic.auth.service;
+
+public interface TokenRevocationService {
+    /**
+     * 撤销单个token（access token或refresh token）
+     * @param jti token的jti
+     * @param expiresAt token过期时间戳（毫秒），已过期的token不记录
+     */
+    void revokeToken(String jti, long expiresAt);
+
+    /**
+     * 撤销用户此前签发的所有token
+     * @param userId 用户id
+     */
+    void revokeUser(Long userId);
+
+    /**
+     * 精确判断token是否已撤销
+     * @param jti token的jti
+     * @param userId 用户id
+     * @param issuedAt token签发时间戳（毫秒）的下界，由exp减去有效期得出
+     * @return 是否已撤销
+     */
+    boolean isRevoked(String jti, Long userId, long issuedAt);
+}
@@ -1,24 +1,38 @@
 package top.zway.fic.auth.service.impl;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.codec.Base64;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.CryptoException;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.crypto.asymmetric.AsymmetricAlgorithm;
 import cn.hutool.crypto.asymmetric.KeyType;
 import cn.hutool.crypto.asymmetric.RSA;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import top.zway.fic.auth.crypto.EcdhCipher;
+import top.zway.fic.auth.crypto.RsaKeyPairPool;
 import top.zway.fic.auth.service.AsymmetricEncryptionService;
 import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.entity.VO.EcdhKeyVO;
 import top.zway.fic.base.entity.VO.RsaKeyVO;
 import top.zway.fic.redis.util.RedisUtils;
 
+import javax.annotation.PostConstruct;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+
 /**
  * 非对称加密服务实现类
  *
  * 核心功能：
- * 1. 基于Hutool工具库实现RSA加密解密
- * 2. 使用Redis存储临时私钥，提供分布式密钥管理
+ * 1. 基于Hutool工具库实现RSA加密解密，另提供ECDH + AES-GCM的快速握手方式
+ * 2. 使用Redis存储临时私钥，提供分布式密钥管理，本地缓存解析后的私钥对象
  * 3. 支持密钥的生命周期管理和自动清理
  * 4. 提供安全的密钥生成和解密服务
  *
@@ -45,21 +59,39 @@ public class AsymmetricEncryptionServiceImpl implements AsymmetricEncryptionServ
      */
     private final RedisUtils redisUtils;
 
+    /**
+     * 预生成的RSA密钥对池
+     * 密钥生成在后台线程完成，请求线程只做出队
+     */
+    private final RsaKeyPairPool rsaKeyPairPool;
+
+    /**
+     * 解析后的私钥对象，key为uuid，过期时间与Redis中的私钥相同
+     * 生成时放入，同一uuid多次解密（如修改密码时先后解密新旧密码）不再重复解析
+     * 私钥是否仍然可用以Redis为准，本地缓存只省去解析，不影响一次性使用
+     */
+    private final TimedCache<String, PrivateKey> privateKeyCache =
+            CacheUtil.newTimedCache(RedisConstant.RSA_PUBLIC_KEY_EXP_TIME * 1000);
+
+    @PostConstruct
+    public void init() {
+        privateKeyCache.schedulePrune(60 * 1000);
+    }
+
     /**
      * 生成RSA密钥对
      *
      * 实现步骤：
-     * 1. 使用Hutool RSA工具生成2048位密钥对
+     * 1. 从密钥对池中取出一个预生成的2048位密钥对
      * 2. 生成唯一UUID作为私钥标识
      * 3. 将私钥Base64编码后存储到Redis
      * 4. 设置私钥过期时间，自动清理
      * 5. 返回公钥和UUID给调用方
      *
-     * Hutool RSA特性：
-     * - 默认生成2048位密钥对，安全性较高
-     * - 自动处理密钥格式转换
-     * - 支持PKCS#8和X.509标准格式
-     * - 内置Base64编码，便于网络传输
+     * 密钥对池：
+     * - 后台线程预生成，取用为O(1)出队，不在请求线程上生成密钥
+     * - 池为空时当场生成，保证接口可用
+     * - 私钥为PKCS#8格式，公钥为X.509格式，Base64编码后传输
      *
      * Redis存储策略：
      * - Key格式：RSA_PRIVATE_KEY + UUID
@@ -71,30 +103,58 @@ public class AsymmetricEncryptionServiceImpl implements AsymmetricEncryptionServ
      */
     @Override
     public RsaKeyVO generateKeyPair() {
-        // 生成RSA密钥对（默认2048位）
-        RSA rsa = new RSA();
+        // 从池中取出预生成的RSA密钥对
+        KeyPair keyPair = rsaKeyPairPool.take();
 
         // 生成简单UUID作为私钥标识（不包含横线）
         String uuid = IdUtil.simpleUUID();
 
         // 将私钥Base64编码后存储到Redis，设置过期时间
         redisUtils.set(RedisConstant.RSA_PRIVATE_KEY + uuid,
-                rsa.getPrivateKeyBase64(),
+                Base64.encode(keyPair.getPrivate().getEncoded()),
                 RedisConstant.RSA_PUBLIC_KEY_EXP_TIME);
+        privateKeyCache.put(uuid, keyPair.getPrivate());
 
         // 返回公钥和UUID
-        return new RsaKeyVO(rsa.getPublicKeyBase64(), uuid);
+        return new RsaKeyVO(Base64.encode(keyPair.getPublic().getEncoded()), uuid);
+    }
+
+    /**
+     * 生成ECDH临时密钥
+     *
+     * 实现步骤：
+     * 1. 生成临时P-256密钥对（毫秒级以下，无需预生成）
+     * 2. 私钥Base64编码后存储到Redis，过期时间与RSA私钥相同
+     * 3. 解析后的私钥放入本地缓存
+     * 4. 返回公钥、UUID和曲线名
+     *
+     * @return EcdhKeyVO 包含Base64公钥和UUID的传输对象
+     */
+    @Override
+    public EcdhKeyVO generateEcdhKey() {
+        KeyPair keyPair;
+        try {
+            keyPair = EcdhCipher.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(e);
+        }
+        String uuid = IdUtil.simpleUUID();
+        redisUtils.set(RedisConstant.ECDH_PRIVATE_KEY + uuid,
+                Base64.encode(keyPair.getPrivate().getEncoded()),
+                RedisConstant.RSA_PUBLIC_KEY_EXP_TIME);
+        privateKeyCache.put(uuid, keyPair.getPrivate());
+        return new EcdhKeyVO(Base64.encode(keyPair.getPublic().getEncoded()), uuid, EcdhCipher.CURVE);
     }
 
     /**
      * 使用UUID解密内容
      *
      * 解密流程：
-     * 1. 根据UUID从Redis获取私钥
+     * 1. 按内容格式区分RSA密文和ECDH密文，从Redis获取对应的私钥
      * 2. 判断是否需要立即删除私钥
      * 3. 验证私钥是否存在且有效
-     * 4. 使用私钥解密Base64编码的密文
-     * 5. 将解密结果转换为UTF-8字符串
+     * 4. 优先使用本地缓存中已解析的私钥，未命中时解析并放入缓存
+     * 5. RSA方式直接解密；ECDH方式协商出AES密钥后做GCM解密
      * 6. 处理异常，解密失败时返回null
      *
      * 异常处理策略：
@@ -104,43 +164,58 @@ public class AsymmetricEncryptionServiceImpl implements AsymmetricEncryptionServ
      * - 不抛出异常：避免向调用方暴露加密细节
      *
      * 安全特性：
-     * - 私钥用后即删：needDelete=true时立即删除
+     * - 私钥用后即删：needDelete=true时立即删除Redis和本地缓存中的私钥
      * - 私钥访问控制：只有拥有UUID才能解密
-     * - 异常保护：不向外部暴露加密实现细节
+     * - 以Redis为准：Redis中已删除或过期的私钥，即使本地缓存仍有也不能解密
      * - 日志记录：记录解密失败信息，便于排查问题
      *
      * @param uuid 私钥唯一标识
-     * @param content Base64编码的RSA加密内容
+     * @param content Base64编码的RSA密文，或ECDH格式的密文（前端公钥.IV.密文）
      * @param needDelete 解密后是否立即删除私钥
      * @return 解密后的UTF-8字符串，失败时返回null
      */
     @Override
     public String decrypt(String uuid, String content, boolean needDelete) {
+        boolean ecdh = EcdhCipher.isEcdhContent(content);
+        String redisKey = (ecdh ? RedisConstant.ECDH_PRIVATE_KEY : RedisConstant.RSA_PRIVATE_KEY) + uuid;
         try {
             // 从Redis获取私钥
-            Object obj = redisUtils.get(RedisConstant.RSA_PRIVATE_KEY + uuid);
+            Object obj = redisUtils.get(redisKey);
 
             // 如果需要删除私钥，立即从Redis中删除
             if (needDelete){
-                redisUtils.del(RedisConstant.RSA_PRIVATE_KEY + uuid);
+                redisUtils.del(redisKey);
             }
 
             // 验证私钥是否存在且为字符串类型
             if (obj instanceof String) {
-                String privateKey = (String) obj;
+                // 不刷新访问时间，过期时间与Redis保持一致
+                PrivateKey privateKey = privateKeyCache.get(uuid, false);
+                if (privateKey == null) {
+                    privateKey = ecdh ? EcdhCipher.parsePrivateKey((String) obj)
+                            : SecureUtil.generatePrivateKey(AsymmetricAlgorithm.RSA.getValue(), Base64.decode((String) obj));
+                    if (!needDelete) {
+                        privateKeyCache.put(uuid, privateKey);
+                    }
+                }
+                if (ecdh) {
+                    return EcdhCipher.decrypt(privateKey, uuid, content);
+                }
 
-                // 使用私钥创建RSA解密器
+                // 使用私钥创建RSA解密器，解密内容并转换为UTF-8字符串
                 RSA rsa = new RSA(privateKey, null);
-
-                // 解密内容并转换为UTF-8字符串
                 return StrUtil.str(rsa.decrypt(content, KeyType.PrivateKey), CharsetUtil.CHARSET_UTF_8);
             }
         } catch (Exception e){
             // 记录解密失败信息，便于问题排查
             log.info("解密失败，uuid：{}，异常信息：{}", uuid, e.getMessage());
+        } finally {
+            if (needDelete) {
+                privateKeyCache.remove(uuid);
+            }
         }
 
         // 解密失败或私钥不存在时返回null
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,69 +1,84 @@
 package top.zway.fic.auth.service.impl;
 
-import cn.hutool.http.HttpUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import top.zway.fic.auth.client.ReCaptchaClient;
 import top.zway.fic.auth.service.ReCaptchaVerificationService;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * reCAPTCHA验证
+ * 每个token只能验证一次：验证前先在Redis中占用token，重复提交的token直接判定失败，不再请求上游
+ * 上游不可用（熔断、超时等）时按reCaptcha.client.fail-open决定放行还是拒绝；
+ * 拒绝时释放占用，用户用同一个token重试不会被当作重放，只有上游给出结果或已放行的token保持占用
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ReCaptchaVerificationServiceImpl implements ReCaptchaVerificationService {
-    @Value("${reCaptcha.client.secret}")
-    private String reCaptchaClientSecret;
-    
     @Value("${reCaptcha.dev.bypass:false}")
     private boolean devBypass;
 
-    private final ObjectMapper objectMapper;
+    @Value("${reCaptcha.client.fail-open:false}")
+    private boolean failOpen;
 
-    public static final String RECAPTCHA_VERIFY_URL = "https://recaptcha.net/recaptcha/api/siteverify";
-
-    private static final String VERIFY_JSON_KEY = "success";
+    private final ReCaptchaClient reCaptchaClient;
+    private final RedisUtils redisUtils;
 
     @Override
     public boolean verify(String captcha) {
+        return verifyAsync(captcha).join();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> verifyAsync(String captcha) {
         // 开发环境绕过选项
         if (devBypass) {
             log.info("开发环境绕过reCAPTCHA验证，captcha: {}", captcha);
-            return true;
+            return CompletableFuture.completedFuture(true);
         }
-        
-        try {
-            Map<String, Object> paramMap = new HashMap<>(4);
-            paramMap.put("secret", reCaptchaClientSecret);
-            paramMap.put("response", captcha);
-            
-            String result = HttpUtil.post(RECAPTCHA_VERIFY_URL, paramMap);
-            JsonNode jsonNode;
-            try {
-                jsonNode = objectMapper.readTree(result);
-            } catch (IOException e) {
-                log.error("解析json失败,json：{}", result);
-                // 开发环境下，如果解析失败也返回true
-                log.warn("reCAPTCHA验证失败，开发环境下默认通过验证");
-                return true;
-            }
-            if (jsonNode == null || jsonNode.get(VERIFY_JSON_KEY) == null) {
-                log.error("解析json失败,json：{}", result);
-                // 开发环境下，如果解析失败也返回true
-                log.warn("reCAPTCHA验证失败，开发环境下默认通过验证");
-                return true;
+        if (StrUtil.isBlank(captcha)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!claim(captcha)) {
+            log.warn("reCAPTCHA token重复提交");
+            return CompletableFuture.completedFuture(false);
+        }
+        return reCaptchaClient.siteVerify(captcha).exceptionally(e -> {
+            log.error("reCAPTCHA验证失败，{}: {}", failOpen ? "默认通过" : "默认拒绝", e.getMessage());
+            if (!failOpen) {
+                release(captcha);
             }
-            return jsonNode.get(VERIFY_JSON_KEY).asBoolean();
+            return failOpen;
+        });
+    }
+
+    /**
+     * 占用token，已被占用说明是重放
+     * Redis不可用时不拦截，由上游的一次性校验兜底
+     */
+    private boolean claim(String captcha) {
+        try {
+            return redisUtils.setIfAbsent(RedisConstant.RECAPTCHA_TOKEN_PREFIX + SecureUtil.sha256(captcha), 1,
+                    RedisConstant.RECAPTCHA_TOKEN_EXP_TIME);
         } catch (Exception e) {
-            log.error("reCAPTCHA验证网络请求失败: {}", e.getMessage());
-            // 开发环境下，如果网络请求失败也返回true
-            log.warn("reCAPTCHA网络请求失败，开发环境下默认通过验证");
+            log.warn("记录reCAPTCHA token失败: {}", e.getMessage());
             return true;
         }
     }
+
+    private void release(String captcha) {
+        try {
+            redisUtils.del(RedisConstant.RECAPTCHA_TOKEN_PREFIX + SecureUtil.sha256(captcha));
+        } catch (Exception e) {
+            log.warn("释放reCAPTCHA token失败: {}", e.getMessage());
+        }
+    }
 }
@@ -39,6 +39,8 @@ public class ResourceServiceImpl {
         // 只有在有数据时才写入Redis
         if (!resourceRolesMap.isEmpty()) {
             redisTemplate.opsForHash().putAll(RedisConstant.RESOURCE_ROLES_MAP, resourceRolesMap);
+            // 通知网关重新加载
+            redisTemplate.convertAndSend(RedisConstant.RESOURCE_ROLES_CHANNEL, System.currentTimeMillis());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package top.zway.fic.auth.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import top.zway.fic.auth.service.TokenRevocationService;
+import top.zway.fic.base.constant.AuthConstant;
+import top.zway.fic.base.constant.RedisConstant;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token撤销
+ * 撤销记录写入Redis后发布通知，网关据此维护布隆过滤器，只有命中过滤器的token才查询Redis
+ * 使用StringRedisTemplate，网关用字符串序列化直接读取
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    /**
+     * exp精确到秒，由exp推算的签发时间最多比实际早1秒
+     */
+    private static final long ISSUED_AT_PRECISION_MILLIS = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public void revokeToken(String jti, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (jti == null || expiresAt <= now) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().add(RedisConstant.REVOKED_TOKENS, jti, expiresAt);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(RedisConstant.REVOKED_TOKENS, 0, now);
+        publish(RedisConstant.REVOKED_TOKEN_MESSAGE_PREFIX + jti);
+    }
+
+    @Override
+    public void revokeUser(Long userId) {
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.opsForZSet().add(RedisConstant.REVOKED_USERS, userId.toString(), now);
+        // 超过refresh token有效期后，撤销前签发的token都已过期
+        stringRedisTemplate.opsForZSet().removeRangeByScore(RedisConstant.REVOKED_USERS, 0,
+                now - TimeUnit.SECONDS.toMillis(AuthConstant.REFRESH_TOKEN_VALIDITY_SECONDS));
+        publish(RedisConstant.REVOKED_USER_MESSAGE_PREFIX + userId);
+        log.info("撤销用户{}的全部token", userId);
+    }
+
+    @Override
+    public boolean isRevoked(String jti, Long userId, long issuedAt) {
+        if (jti != null) {
+            Double expiresAt = stringRedisTemplate.opsForZSet().score(RedisConstant.REVOKED_TOKENS, jti);
+            if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+                return true;
+            }
+        }
+        if (userId != null) {
+            Double revokedAt = stringRedisTemplate.opsForZSet().score(RedisConstant.REVOKED_USERS, userId.toString());
+            // 确定签发早于撤销时间才判定撤销，撤销前1秒内签发的token不受影响
+            return revokedAt != null && issuedAt + ISSUED_AT_PRECISION_MILLIS <= revokedAt;
+        }
+        return false;
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstant.TOKEN_REVOKED_CHANNEL, message);
+        } catch (Exception e) {
+            // 网关定时全量重建过滤器，通知丢失时延迟生效
+            log.warn("发布token撤销通知失败：{}", message, e);
+        }
+    }
+}
@@ -7,9 +7,11 @@ import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import top.zway.fic.auth.cache.UserDetailsCache;
 import top.zway.fic.auth.dao.UserAuthDao;
 import top.zway.fic.auth.entity.SecurityUser;
 import top.zway.fic.base.constant.UserLoginStateConstants;
@@ -34,13 +36,15 @@ import java.util.stream.Collectors;
  * - 遵循Spring Security的标准接口规范，确保与OAuth2框架的无缝集成
  * - 采用依赖注入模式，通过UserAuthDao访问数据库，实现了数据访问层的解耦
  * - 实现了完整的用户状态检查机制，提供了多层次的安全保护
+ * - 查询结果按用户名短时缓存（UserDetailsCache），刷新token不再每次查询数据库
+ * - 实现UserDetailsPasswordService，登录成功且密码哈希强度低于当前强度时，框架自动回调重新哈希
  *
  * @author Ethan Yao
  * @since 1.0.0
  */
 @Service
 @RequiredArgsConstructor
-public class UserServiceImpl implements UserDetailsService {
+public class UserServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     /**
      * 用户认证数据访问对象
@@ -48,6 +52,12 @@ public class UserServiceImpl implements UserDetailsService {
      */
     private final UserAuthDao userAuthDao;
 
+    /**
+     * 用户认证信息本地缓存
+     * 用户服务修改密码、邮箱或角色后通过Redis通知删除
+     */
+    private final UserDetailsCache userDetailsCache;
+
     /**
      * 根据用户名加载用户详细信息
      *
@@ -78,29 +88,38 @@ public class UserServiceImpl implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        // Step 1: 数据库查询
-        // 原理：通过DAO层查询数据库，获取所有匹配的用户记录
-        // 注意：这里使用List是因为可能存在模糊查询的情况，需要进一步筛选
-        List<UserDTO> userDTOList = userAuthDao.listUserDtoByUsername(username);
+        // Step 0: 本地缓存
+        // 原理：刷新token时同一用户反复加载，命中缓存时跳过数据库查询
+        // 注意：状态检查仍然每次执行，缓存的是查询结果而不是检查结果
+        UserDTO userDTO = userDetailsCache.get(username);
+        if (userDTO == null) {
+            // Step 1: 数据库查询
+            // 原理：通过DAO层查询数据库，获取所有匹配的用户记录
+            // 注意：这里使用List是因为可能存在模糊查询的情况，需要进一步筛选
+            List<UserDTO> userDTOList = userAuthDao.listUserDtoByUsername(username);
 
-        // Step 2: 精确匹配用户名
-        // 原理：从查询结果中筛选出用户名完全匹配的记录
-        // 安全考虑：防止模糊查询导致的用户身份混淆，确保用户名的唯一性和准确性
-        List<UserDTO> findUserDtoList = userDTOList.stream()
-                .filter(item -> item.getUsername().equals(username))
-                .collect(Collectors.toList());
+            // Step 2: 精确匹配用户名
+            // 原理：从查询结果中筛选出用户名完全匹配的记录
+            // 安全考虑：防止模糊查询导致的用户身份混淆，确保用户名的唯一性和准确性
+            List<UserDTO> findUserDtoList = userDTOList.stream()
+                    .filter(item -> item.getUsername().equals(username))
+                    .collect(Collectors.toList());
 
-        // Step 3: 用户存在性检查
-        // 原理：如果没有找到匹配的用户，说明用户名不存在，抛出标准的Spring Security异常
-        // 注意：这里抛出的异常信息应该是ACCOUNT_DISABLED，可能是常量命名不当，建议改为USERNAME_NOT_FOUND
-        if(CollUtil.isEmpty(findUserDtoList)){
-            throw new UsernameNotFoundException(UserLoginStateConstants.ACCOUNT_DISABLED);
+            // Step 3: 用户存在性检查
+            // 原理：如果没有找到匹配的用户，说明用户名不存在，抛出标准的Spring Security异常
+            // 注意：这里抛出的异常信息应该是ACCOUNT_DISABLED，可能是常量命名不当，建议改为USERNAME_NOT_FOUND
+            if(CollUtil.isEmpty(findUserDtoList)){
+                throw new UsernameNotFoundException(UserLoginStateConstants.ACCOUNT_DISABLED);
+            }
+            userDTO = findUserDtoList.get(0);
+            userDetailsCache.put(userDTO);
         }
 
         // Step 4: 创建Spring Security用户对象
         // 原理：将业务层的UserDTO对象转换为Spring Security标准的UserDetails对象
         // 转换过程：UserDTO → SecurityUser → UserDetails（多态）
-        SecurityUser securityUser = new SecurityUser(findUserDtoList.get(0));
+        // 每次新建SecurityUser，框架擦除凭证等修改不会影响缓存的UserDTO
+        SecurityUser securityUser = new SecurityUser(userDTO);
 
         // Step 5: 用户状态安全检查
         // 原理：Spring Security提供了多重用户状态检查机制，确保系统安全
@@ -131,4 +150,29 @@ public class UserServiceImpl implements UserDetailsService {
         // 后续流程：OAuth2框架接收到此对象后，会进行密码验证，然后生成JWT Token
         return securityUser;
     }
-}
\ No newline at end of file
+
+    /**
+     * 更新用户密码哈希
+     *
+     * 调用时机：
+     * - DaoAuthenticationProvider校验密码成功后，若PasswordEncoder.upgradeEncoding返回true
+     *   （已有哈希的BCrypt强度低于当前强度），框架用明文重新编码后回调此方法
+     *
+     * 作用：
+     * - 提高password.hashing强度后，用户在下次登录时逐步迁移到新强度，无需批量重置密码
+     *
+     * @param user 已通过认证的用户
+     * @param newPassword 新的密码哈希
+     * @return 携带新密码哈希的用户对象
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userAuthDao.updatePasswordByUsername(user.getUsername(), newPassword);
+        // 缓存中仍是旧哈希，本实例和其他认证实例都需要删除
+        userDetailsCache.evictAll(user.getUsername());
+        if (user instanceof SecurityUser) {
+            ((SecurityUser) user).setPassword(newPassword);
+        }
+        return user;
+    }
+}
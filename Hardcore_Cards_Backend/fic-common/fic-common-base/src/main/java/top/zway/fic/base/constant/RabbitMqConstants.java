@@ -9,7 +9,7 @@ package top.zway.fic.base.constant;
  * 3. 支持异步数据处理和系统解耦
  * 
  * 架构设计：
- * - 数据更新：支持实时更新和延迟批量更新两种模式
+ * - 数据更新：实时广播变更，全量更新由搜索服务去抖调度
  * - 死信队列：处理失败消息的重试和兜底机制
  * - 邮件发送：异步发送通知邮件，提升用户体验
  * - 邀请提醒：定时提醒用户处理未读邀请
@@ -53,8 +53,10 @@ public class RabbitMqConstants {
      * - 通知其他相关服务数据变更
      * 
      * 优先级：高（实时处理）
+     * 
+     * 队列参数与旧队列不同，无法在原队列上修改，改用新名称
      */
-    public static final String DATA_UPDATE_QUEUE_NAME = "data.update.queue";
+    public static final String DATA_UPDATE_QUEUE_NAME = "data.update.queue.v2";
     
     /**
      * 部分更新队列最大长度
@@ -63,86 +65,40 @@ public class RabbitMqConstants {
      * 设计原理：
      * - 防止消息堆积导致内存溢出
      * - 保证实时性，避免消息积压过多
-     * - 超出限制时触发队列保护机制
+     * - 超出限制时拒绝新消息（见DATA_UPDATE_OVERFLOW），不丢弃已入队的更新
      */
     public static final int DATA_UPDATE_WAITING_MAX_LENGTH = 10000;
 
-    // ==================== 全量更新延迟队列 ====================
-    
-    /**
-     * 全量数据更新延迟队列交换机名称
-     * 
-     * 类型：Fanout Exchange + TTL
-     * 作用：延迟触发全量数据更新，避免频繁的全量操作
-     * 
-     * 设计思路：
-     * 当有大量数据变更时，不立即执行全量更新，而是等待一段时间
-     * 让多个变更合并为一次全量更新，提升系统性能
-     */
-    public static final String FULL_UPDATE_TTL_EXCHANGE_NAME = "full_update_ttl_fanout_exchange";
-    
     /**
-     * 全量数据更新延迟队列名称
+     * 部分更新队列溢出策略
      * 
-     * 特点：带有TTL（存活时间）的队列
-     * 消息生命周期：
-     * 1. 消息发送到此队列
-     * 2. 等待TTL时间（30分钟）
-     * 3. TTL过期后消息转发到死信队列
-     * 4. 死信队列的消费者执行全量更新
+     * reject-publish：队列满时对新消息返回nack，看板服务的发件箱保留该事件稍后重发；
+     * 默认的drop-head会在确认发布后静默丢弃最旧的更新
      */
-    public static final String FULL_UPDATE_TTL_QUEUE_NAME = "full.update.ttl.queue";
-    
-    /**
-     * 全量数据更新TTL时间（毫秒）
-     * 
-     * 时间：30分钟
-     * 设计原理：
-     * - 给系统足够时间收集批量变更
-     * - 避免过于频繁的全量更新操作
-     * - 平衡数据一致性和系统性能
-     */
-    public static final int FULL_UPDATE_TTL_MILLISECOND = 1000 * 60 * 30;
-    
-    /**
-     * 全量数据更新延迟队列最大长度
-     * 
-     * 限制：1000条消息
-     * 作用：
-     * - 控制延迟队列的大小
-     * - 防止内存过度占用
-     * - 全量更新频率相对较低，1000条足够使用
-     */
-    public static final int FULL_UPDATE_WAITING_MAX_LENGTH = 1000;
+    public static final String DATA_UPDATE_OVERFLOW = "reject-publish";
 
-    // ==================== 死信队列（实际执行全量更新）====================
-    
     /**
-     * 全量数据更新死信交换机名称
-     * 
-     * 类型：Dead Letter Exchange（死信交换机）
-     * 作用：接收从TTL队列过期的消息，触发实际的全量更新
+     * 旧的部分更新队列名称
      * 
-     * 工作流程：
-     * 1. TTL队列中的消息过期
-     * 2. 过期消息自动转发到此死信交换机
-     * 3. 死信交换机将消息路由到死信队列
-     * 4. 消费者从死信队列获取消息并执行全量更新
+     * 使用默认的drop-head溢出策略，搜索服务启动时解除绑定、消费完剩余消息后删除
      */
-    public static final String FULL_UPDATE_DEAD_EXCHANGE_NAME = "full_update_dead_fanout_exchange";
-    
+    public static final String LEGACY_DATA_UPDATE_QUEUE_NAME = "data.update.queue";
+
+    // ==================== 已废弃的全量更新延迟队列 ====================
+
     /**
-     * 全量数据更新死信队列名称
-     * 
-     * 处理内容：执行全量数据更新操作
-     * 消费逻辑：
-     * - 重新构建Elasticsearch的完整索引
-     * - 刷新所有相关的Redis缓存
-     * - 确保数据的最终一致性
-     * 
-     * 优先级：低（延迟处理，但很重要）
+     * 旧版本全量更新使用的TTL交换机、队列和死信交换机、队列
+     *
+     * 全量更新改为redis有序集合调度后不再声明，已部署环境中的TTL队列仍绑定在部分更新交换机上，
+     * 消息过期后进入没有消费者的死信队列，搜索服务启动时删除
      */
-    public static final String FULL_UPDATE_DEAD_QUEUE_NAME = "full.update.dead.queue";
+    public static final String LEGACY_FULL_UPDATE_TTL_EXCHANGE_NAME = "full_update_ttl_fanout_exchange";
+
+    public static final String LEGACY_FULL_UPDATE_TTL_QUEUE_NAME = "full.update.ttl.queue";
+
+    public static final String LEGACY_FULL_UPDATE_DEAD_EXCHANGE_NAME = "full_update_dead_fanout_exchange";
+
+    public static final String LEGACY_FULL_UPDATE_DEAD_QUEUE_NAME = "full.update.dead.queue";
 
     // ==================== 邮件发送队列 ====================
     
@@ -37,6 +37,60 @@ public class RedisConstant {
      */
     public static final String RESOURCE_ROLES_MAP = "AUTH:RESOURCE_ROLES_MAP";
 
+    /**
+     * 资源角色映射变更通知频道
+     *
+     * 作用：认证服务写入资源角色映射后发布通知，网关收到后重新加载本地副本
+     * 使用场景：网关鉴权只读内存，不在请求中访问Redis
+     */
+    public static final String RESOURCE_ROLES_CHANNEL = "AUTH:RESOURCE_ROLES_CHANGED";
+
+    /**
+     * 用户认证信息变更通知频道
+     *
+     * 作用：用户服务修改密码、邮箱（用户名）或角色后发布通知，消息内容为用户名
+     * 使用场景：认证服务收到后删除本地缓存的用户认证信息，下次登录或刷新token时重新查询数据库
+     */
+    public static final String USER_DETAILS_CHANNEL = "AUTH:USER_DETAILS_CHANGED";
+
+    /**
+     * 已撤销的token
+     *
+     * 作用：退出登录时撤销access token和refresh token
+     * 数据结构：ZSet，member为token的jti，score为token过期时间戳（毫秒），过期后的记录在写入时清理
+     */
+    public static final String REVOKED_TOKENS = "AUTH:REVOKED_TOKENS";
+
+    /**
+     * 已撤销全部token的用户
+     *
+     * 作用：修改、重置密码时撤销该用户此前签发的所有token
+     * 数据结构：ZSet，member为用户id，score为撤销时间戳（毫秒），签发时间不晚于它的token无效
+     * 超过refresh token有效期的记录在写入时清理
+     */
+    public static final String REVOKED_USERS = "AUTH:REVOKED_USERS";
+
+    /**
+     * token撤销通知频道
+     *
+     * 作用：认证服务撤销token后发布，网关收到后加入本地布隆过滤器
+     * 消息格式：t:{jti}表示单个token，u:{用户id}表示该用户的全部token
+     */
+    public static final String TOKEN_REVOKED_CHANNEL = "AUTH:TOKEN_REVOKED";
+
+    public static final String REVOKED_TOKEN_MESSAGE_PREFIX = "t:";
+
+    public static final String REVOKED_USER_MESSAGE_PREFIX = "u:";
+
+    /**
+     * 网关限流滑动窗口Key前缀
+     *
+     * 作用：记录用户在窗口内对某个路由的请求，控制集群总量
+     * 数据结构：ZSet，score为请求时间戳
+     * 完整Key格式：RATE_LIMIT:{routeId}:{userId或客户端地址}
+     */
+    public static final String RATE_LIMIT_PREFIX = "RATE_LIMIT:";
+
     // ==================== 看板缓存相关 ====================
     
     /**
@@ -86,28 +140,147 @@ public class RedisConstant {
     // ==================== 定时更新相关 ====================
     
     /**
-     * 看板全量更新定时器Key前缀
-     * 
-     * 作用：防止看板数据的重复全量更新操作
-     * 完整Key格式：TIMER:KANBAN_FULL_UPDATE_{kanbanId}
-     * 使用场景：当看板有大量变更时，避免频繁的全量更新
-     * 
+     * 看板全量更新调度有序集合Key
+     *
+     * 作用：对看板的全量更新去抖
+     * 数据结构：ZSet，member为看板id，score为到期时间戳（毫秒）
+     *
      * 工作原理：
-     * 1. 发起全量更新时设置此Key
-     * 2. Key存在期间忽略其他全量更新请求
-     * 3. Key过期后允许下一次全量更新
+     * 1. 部分更新后把看板的到期时间推迟到 当前时间+静默时间，各实例按刷新间隔批量写入
+     * 2. 调度线程取出已到期的看板，原子地认领后执行一次全量更新
+     * 3. 看板持续有修改时不会到期，静默后只更新一次
      */
-    public static final String KANBAN_FULL_UPDATE_TIMER_PREFIX = "TIMER:KANBAN_FULL_UPDATE_";
+    public static final String KANBAN_FULL_UPDATE_SCHEDULE = "SCHEDULE:KANBAN_FULL_UPDATE";
 
     /**
-     * 看板全量更新定时器过期时间（秒）
-     * 
+     * 看板全量更新静默时间（毫秒）
+     *
      * 时间：20分钟
      * 设计原理：平衡系统性能和数据一致性
-     * - 避免短时间内重复全量更新
+     * - 编辑期间不做全量更新
      * - 确保数据最终一致性
      */
-    public static final long KANBAN_FULL_UPDATE_TIMER_EXP_TIME = 60 * 20;
+    public static final long KANBAN_FULL_UPDATE_QUIET_MILLISECOND = 20 * 60 * 1000L;
+
+    // ==================== 搜索缓存相关 ====================
+
+    /**
+     * 看板搜索索引代数Key前缀
+     *
+     * 作用：记录看板搜索索引被修改的次数
+     * 完整Key格式：GENERATION:KANBAN_SEARCH_{kanbanId}
+     * 使用场景：每次写入ES后递增，搜索缓存Key中包含相关看板的代数
+     *
+     * 工作原理：
+     * 1. 看板内容写入ES后代数+1
+     * 2. 旧代数对应的缓存Key不再被命中，无需主动删除
+     */
+    public static final String KANBAN_SEARCH_GENERATION_PREFIX = "GENERATION:KANBAN_SEARCH_";
+
+    /**
+     * 搜索结果缓存Key前缀
+     *
+     * 作用：缓存用户的搜索结果页
+     * 完整Key格式：CACHE:SEARCH_{userId}_{摘要}
+     * 摘要由规范化后的关键词、分页参数和相关看板的代数计算得出
+     */
+    public static final String SEARCH_CACHE_PREFIX = "CACHE:SEARCH_";
+
+    /**
+     * 搜索结果缓存过期时间（秒）
+     *
+     * 时间：1分钟
+     * 设计原理：用户短时间内的重复搜索直接命中缓存
+     * - 代数变化后自然失效，过期时间只用于回收空间
+     */
+    public static final long SEARCH_CACHE_EXPIRE_SECOND = 60L;
+
+    /**
+     * 正在重建的搜索索引Key
+     *
+     * 作用：记录正在后台构建的新版本索引名
+     * 使用场景：Key存在期间，所有实例的部分更新同时写入新旧两个索引
+     *
+     * 示例：REINDEX:KANBAN_CONTENT_TARGET -> "kanban_content_v1650000000000"
+     */
+    public static final String SEARCH_REINDEX_TARGET = "REINDEX:KANBAN_CONTENT_TARGET";
+
+    /**
+     * 重建索引标记过期时间（秒）
+     *
+     * 时间：2小时
+     * 设计原理：重建实例异常退出时，双写标记自动失效，不会一直写入废弃的索引
+     */
+    public static final long SEARCH_REINDEX_TARGET_EXP_TIME = 60 * 60 * 2;
+
+    /**
+     * 索引对账锁Key
+     *
+     * 作用：多个搜索实例同时只有一个执行MySQL与ES的对账
+     * 值为持有锁的实例标识
+     */
+    public static final String SEARCH_RECONCILE_LOCK = "LOCK:SEARCH_RECONCILE";
+
+    /**
+     * 索引对账锁过期时间（秒）
+     *
+     * 时间：5分钟
+     * 设计原理：每个看板开始前续期，对账耗时不受限制；执行对账的实例异常退出时，锁很快自动释放
+     */
+    public static final long SEARCH_RECONCILE_LOCK_EXP_TIME = 60 * 5;
+
+    /**
+     * 搜索索引版本序列Key
+     *
+     * 作用：为每次写入索引分配全局递增的版本号
+     * 使用场景：看板服务转发发件箱事件、搜索服务全量更新和对账时各自取号，
+     * 索引以外部版本写入，较旧的写入被拒绝
+     *
+     * 注意：不设置过期时间，删除会导致版本回退
+     */
+    public static final String SEARCH_VERSION_SEQUENCE = "SEQUENCE:SEARCH_VERSION";
+
+    /**
+     * 搜索索引版本序列已初始化标记Key
+     *
+     * 作用：改用外部版本前写入的文档带有ES内部版本，序列需从其中的最大值之后开始，否则修改被当作旧版本拒绝
+     * 使用场景：搜索服务启动时若没有此标记，扫描索引中的最大版本并将序列提高到该值，完成后写入标记
+     *
+     * 注意：不设置过期时间
+     */
+    public static final String SEARCH_VERSION_SEEDED = "SEQUENCE:SEARCH_VERSION_SEEDED";
+
+    /**
+     * 搜索更新发件箱转发锁Key
+     *
+     * 作用：多个看板实例同时只有一个转发发件箱，事件按写入顺序取得版本
+     * 值为持有锁的实例标识
+     */
+    public static final String SEARCH_OUTBOX_RELAY_LOCK = "LOCK:SEARCH_OUTBOX_RELAY";
+
+    /**
+     * 搜索更新发件箱转发锁过期时间（秒）
+     *
+     * 时间：30秒
+     * 设计原理：每轮转发完即释放，积压较多时每批开始前续期；实例异常退出时很快由其他实例接手
+     */
+    public static final long SEARCH_OUTBOX_RELAY_LOCK_EXP_TIME = 30;
+
+    /**
+     * 内嵌lucene搜索实例锁Key
+     *
+     * 作用：search.engine=lucene时只允许一个搜索实例运行
+     * 原因：索引只在本实例磁盘上，部分更新队列和全量更新调度由所有实例分摊，多实例时各自的索引都会缺失修改
+     * 值为持有锁的实例标识，持有期间定时续期，取不到锁的实例启动失败
+     */
+    public static final String SEARCH_LUCENE_INSTANCE_LOCK = "LOCK:SEARCH_LUCENE_INSTANCE";
+
+    /**
+     * 内嵌lucene搜索实例锁过期时间（秒）
+     *
+     * 时间：30秒，每10秒续期；实例异常退出后最多30秒可由新实例启动
+     */
+    public static final long SEARCH_LUCENE_INSTANCE_LOCK_EXP_TIME = 30;
 
     // ==================== 安全认证相关 ====================
     
@@ -134,6 +307,66 @@ public class RedisConstant {
      */
     public static final long RSA_PUBLIC_KEY_EXP_TIME = 60 * 10;
 
+    /**
+     * ECDH临时私钥缓存Key前缀
+     * 
+     * 作用：缓存ECDH握手中服务端的临时私钥（P-256）
+     * 完整Key格式：ECDH:PRIVATE_KEY_{uuid}
+     * 过期时间：与RSA私钥相同，使用RSA_PUBLIC_KEY_EXP_TIME
+     */
+    public static final String ECDH_PRIVATE_KEY = "ECDH:PRIVATE_KEY_";
+
+    /**
+     * JWT签名密钥集合Key
+     *
+     * 作用：所有认证实例共用的JWT签名密钥，按kid区分
+     * 数据结构：Hash，field为kid，value为{createdAt: 创建时间戳, jwk: 公钥JWK的JSON,
+     * privateJwk: 用jwt.jks公钥加密的完整JWK（JWE），只有认证服务能解密}
+     *
+     * 轮换方式：
+     * - 新密钥先发布公钥，经过激活延迟后才用于签名，网关有时间拉取到新公钥
+     * - 被替换的旧密钥继续保留，直到用它签发的token（含refresh token）全部过期
+     */
+    public static final String JWT_KEYSET = "AUTH:JWT_KEYSET";
+
+    /**
+     * JWT签名密钥轮换锁Key
+     *
+     * 作用：多个认证实例同时只有一个生成新密钥、清理过期密钥
+     * 值为持有锁的实例标识
+     */
+    public static final String JWT_KEY_ROTATION_LOCK = "LOCK:JWT_KEY_ROTATION";
+
+    /**
+     * JWT签名密钥轮换锁过期时间（秒）
+     */
+    public static final long JWT_KEY_ROTATION_LOCK_EXP_TIME = 60;
+
+    /**
+     * 集群统一的BCrypt强度Key
+     *
+     * 作用：未配置强度时，第一个启动的认证或用户服务实例写入自己测量的强度，其他实例直接使用
+     * 使用场景：各实例硬件不同时测量结果不同，统一后登录时不会在两个强度之间反复重新哈希
+     *
+     * 注意：不设置过期时间，硬件变化后删除该Key，下一个启动的实例重新测量
+     */
+    public static final String PASSWORD_HASH_STRENGTH = "AUTH:PASSWORD_HASH_STRENGTH";
+
+    /**
+     * 已验证的reCAPTCHA token Key前缀
+     *
+     * 作用：记录已提交验证的token，同一token第二次提交直接判定失败
+     * 完整Key格式：RECAPTCHA:TOKEN_{token的sha256}
+     */
+    public static final String RECAPTCHA_TOKEN_PREFIX = "RECAPTCHA:TOKEN_";
+
+    /**
+     * 已验证的reCAPTCHA token过期时间（秒）
+     *
+     * 时间：2分钟，与reCAPTCHA token本身的有效期一致，过期后上游也不会再接受
+     */
+    public static final long RECAPTCHA_TOKEN_EXP_TIME = 60 * 2;
+
     // ==================== 邮件验证相关 ====================
     
     /**
@@ -0,0 +1,89 @@
+package top.zway.fic.base.constant;
+
+/**
+ * 搜索业务常量类
+ *
+ * 作用说明：
+ * 1. 定义搜索结果分页、高亮相关的参数
+ * 2. 统一管理搜索接口的默认值和上限，避免硬编码
+ *
+ * 设计思路：
+ * - 使用search_after游标分页，避免深分页时ES的from+size开销
+ * - 限制单页大小，防止大账号一次拉取过多结果
+ *
+ * @author hardcore-cards
+ * @since 1.0
+ */
+public class SearchConstants {
+
+    // ==================== 分页相关 ====================
+
+    /**
+     * 默认每页结果数
+     *
+     * 使用场景：客户端未指定size时使用
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * 每页结果数上限
+     *
+     * 设计原理：
+     * - 客户端只拉取当前渲染的一页
+     * - 超过上限时按上限处理，保护ES和网络带宽
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // ==================== 高亮相关 ====================
+
+    /**
+     * 高亮片段前缀标签
+     */
+    public static final String HIGHLIGHT_PRE_TAG = "<em>";
+
+    /**
+     * 高亮片段后缀标签
+     */
+    public static final String HIGHLIGHT_POST_TAG = "</em>";
+
+    /**
+     * 单个高亮片段的最大字符数
+     */
+    public static final int HIGHLIGHT_FRAGMENT_SIZE = 100;
+
+    /**
+     * 每条结果最多返回的高亮片段数
+     */
+    public static final int HIGHLIGHT_FRAGMENT_NUMBER = 3;
+
+    // ==================== 输入联想相关 ====================
+
+    /**
+     * 默认联想条数
+     */
+    public static final int DEFAULT_SUGGEST_SIZE = 10;
+
+    /**
+     * 联想条数上限
+     *
+     * 设计原理：联想接口按键调用，只返回少量标题以保证毫秒级响应
+     */
+    public static final int MAX_SUGGEST_SIZE = 20;
+
+    // ==================== 结果缓存相关 ====================
+
+    /**
+     * 本地搜索结果缓存容量
+     *
+     * 作用：Redis之前的一级缓存，LRU淘汰
+     */
+    public static final int LOCAL_CACHE_CAPACITY = 1024;
+
+    /**
+     * 本地搜索结果缓存过期时间（毫秒）
+     *
+     * 时间：10秒
+     * 设计原理：缓存Key已包含看板代数，过期时间只用于控制内存占用
+     */
+    public static final long LOCAL_CACHE_EXPIRE_MILLISECOND = 10 * 1000L;
+}
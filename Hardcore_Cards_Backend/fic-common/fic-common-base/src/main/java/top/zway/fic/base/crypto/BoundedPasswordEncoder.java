@@ -0,0 +1,167 @@
+package top.zway.fic.base.crypto;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在独立线程池中执行BCrypt的密码编码器
+ *
+ * 设计原理：
+ * - BCrypt每次计算几十到几百毫秒CPU，登录高峰时在请求线程上计算会占满所有请求线程
+ * - 哈希计算提交到固定大小的线程池，等待队列有上限，队列满时立即拒绝，
+ *   同时等待中的请求线程数也因此有上限，其他接口不受影响
+ * - 拒绝或等待超时抛出{@link PasswordHashingBusyException}，由调用方返回限流提示
+ *
+ * 自适应强度：
+ * - 配置strength时直接使用
+ * - 未配置时启动时测量，取耗时不超过目标值的最大强度，再由调用方换成集群统一的强度，
+ *   各实例测量结果不同时不会在两个强度之间反复重新哈希
+ * - 已有哈希的强度低于当前强度时upgradeEncoding返回true，登录成功后重新哈希；
+ *   强度更高的哈希保持不变，不会被较慢的实例降低
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    public BoundedPasswordEncoder(Settings settings) {
+        this(settings, IntUnaryOperator.identity());
+    }
+
+    /**
+     * @param settings      配置
+     * @param shareStrength 未配置强度时调用，传入本实例测量的强度，返回集群统一使用的强度
+     */
+    public BoundedPasswordEncoder(Settings settings, IntUnaryOperator shareStrength) {
+        this.strength = settings.getStrength() > 0 ? settings.getStrength()
+                : shareStrength.applyAsInt(measureStrength(settings.getTargetMillis(),
+                settings.getMinStrength(), settings.getMaxStrength()));
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.timeoutMillis = settings.getTimeoutMillis();
+        int threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = settings.getQueueCapacity() > 0 ? settings.getQueueCapacity() : threads * 4;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "password-hashing-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("密码哈希强度：{}，线程数：{}，队列上限：{}", strength, threads, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(2)) < strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException();
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingBusyException();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 从最小强度开始逐级测量，取耗时不超过目标值的最大强度，每升一级耗时约翻倍
+     */
+    private static int measureStrength(long targetMillis, int minStrength, int maxStrength) {
+        int chosen = minStrength;
+        for (int cost = minStrength; cost <= maxStrength; cost++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+            long start = System.nanoTime();
+            encoder.encode("measure");
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsed > targetMillis) {
+                break;
+            }
+            chosen = cost;
+        }
+        return chosen;
+    }
+
+    @Data
+    public static class Settings {
+        /**
+         * BCrypt强度，0表示启动时按目标耗时测量，由第一个测量的实例确定集群统一的强度
+         */
+        private int strength;
+        /**
+         * 单次哈希的目标耗时（毫秒）
+         */
+        private long targetMillis = 250;
+        private int minStrength = 10;
+        private int maxStrength = 14;
+        /**
+         * 线程数，0表示CPU核数
+         */
+        private int threads;
+        /**
+         * 等待队列上限，0表示线程数的4倍
+         */
+        private int queueCapacity;
+        /**
+         * 提交后等待结果的最长时间（毫秒）
+         */
+        private long timeoutMillis = 3000;
+    }
+}
@@ -0,0 +1,10 @@
+package top.zway.fic.base.crypto;
+
+/**
+ * 密码哈希线程池已满或等待超时
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException() {
+        super("系统繁忙，请稍后重试");
+    }
+}
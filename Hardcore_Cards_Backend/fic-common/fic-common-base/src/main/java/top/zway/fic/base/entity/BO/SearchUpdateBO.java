@@ -14,6 +14,62 @@ public class SearchUpdateBO implements Serializable {
     private UpdateTypeEnum updateType;
     private Long data;
 
+    // 以下为变更后的内容，搜索服务直接据此写索引，不再回查数据库
+
+    /**
+     * 所属列，列、卡片需要
+     */
+    private Long columnId;
+    /**
+     * 所属卡片，标签需要
+     */
+    private Long cardId;
+    /**
+     * 变更后的内容，删除时为null
+     */
+    private String content;
+    /**
+     * 是否为删除
+     */
+    private Boolean deleted;
+    /**
+     * 全局递增的版本，发布时分配，索引以外部版本写入，乱序到达的旧版本被拒绝
+     * 为null表示旧格式事件，需要回查数据库
+     */
+    private Long version;
+    /**
+     * 变更写入的时间戳（毫秒），用于统计从变更到写入索引的延迟
+     */
+    private Long eventTime;
+
+    public SearchUpdateBO(Long kanbanId, UpdateTypeEnum updateType, Long data) {
+        this.kanbanId = kanbanId;
+        this.updateType = updateType;
+        this.data = data;
+    }
+
+    /**
+     * 新增或修改
+     */
+    public static SearchUpdateBO upsert(Long kanbanId, UpdateTypeEnum updateType, Long data,
+                                        Long columnId, Long cardId, String content) {
+        return new SearchUpdateBO(kanbanId, updateType, data, columnId, cardId, content, false, null, null);
+    }
+
+    /**
+     * 删除
+     */
+    public static SearchUpdateBO delete(Long kanbanId, UpdateTypeEnum updateType, Long data) {
+        return new SearchUpdateBO(kanbanId, updateType, data, null, null, null, true, null, null);
+    }
+
+    /**
+     * 是否携带了变更内容
+     */
+    public boolean carryPayload() {
+        return version != null && deleted != null;
+    }
+
     public enum UpdateTypeEnum {
         KANBAN,
         COLUMN,
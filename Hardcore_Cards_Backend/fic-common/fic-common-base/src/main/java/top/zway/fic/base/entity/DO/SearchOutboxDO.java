@@ -0,0 +1,31 @@
+package top.zway.fic.base.entity.DO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchOutboxDO implements Serializable {
+    private Long id;
+
+    private Long kanbanId;
+
+    private String updateType;
+
+    private Long data;
+
+    private Long columnId;
+
+    private Long cardId;
+
+    private String content;
+
+    private Boolean deleted;
+
+    private Date createTime;
+}
@@ -0,0 +1,20 @@
+package top.zway.fic.base.entity.VO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EcdhKeyVO {
+    /**
+     * 服务端临时公钥，X.509格式Base64编码
+     */
+    private String publicKey;
+    private String uuid;
+    /**
+     * 曲线名，固定为P-256
+     */
+    private String curve;
+}
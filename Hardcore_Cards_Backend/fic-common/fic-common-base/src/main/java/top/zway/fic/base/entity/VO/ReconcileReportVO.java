@@ -0,0 +1,44 @@
+package top.zway.fic.base.entity.VO;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * MySQL与搜索索引的一次对账结果
+ */
+@Data
+@NoArgsConstructor
+public class ReconcileReportVO {
+    private Date startTime;
+    private Long costMillis;
+    /**
+     * 比对的看板数
+     */
+    private Long kanbanCount = 0L;
+    /**
+     * 比对的文档数
+     */
+    private Long docCount = 0L;
+    /**
+     * 数据库有、索引缺失的文档数
+     */
+    private Long missingCount = 0L;
+    /**
+     * 内容与数据库不一致的文档数
+     */
+    private Long staleCount = 0L;
+    /**
+     * 数据库已删除、索引仍存在的文档数
+     */
+    private Long orphanCount = 0L;
+    /**
+     * 有差异并已修复的看板数
+     */
+    private Long repairedKanbanCount = 0L;
+
+    public long getDriftCount() {
+        return missingCount + staleCount + orphanCount;
+    }
+}
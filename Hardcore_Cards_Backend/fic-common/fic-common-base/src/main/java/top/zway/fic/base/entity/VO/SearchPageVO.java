@@ -0,0 +1,33 @@
+package top.zway.fic.base.entity.VO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageVO {
+    /**
+     * 按看板分组的结果，组内与组间均保持相关度顺序
+     */
+    private List<KanbanGroup> groups;
+    /**
+     * 下一页游标，为null表示没有更多结果
+     */
+    private String nextCursor;
+    /**
+     * 本页结果数
+     */
+    private Integer size;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class KanbanGroup {
+        private Long kanbanId;
+        private List<SearchVO> items;
+    }
+}
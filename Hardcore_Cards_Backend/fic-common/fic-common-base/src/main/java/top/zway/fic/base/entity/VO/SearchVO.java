@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,4 +13,11 @@ public class SearchVO {
     private String content;
     private String type;
     private Long kanbanId;
+    private List<String> highlights;
+
+    public SearchVO(String content, String type, Long kanbanId) {
+        this.content = content;
+        this.type = type;
+        this.kanbanId = kanbanId;
+    }
 }
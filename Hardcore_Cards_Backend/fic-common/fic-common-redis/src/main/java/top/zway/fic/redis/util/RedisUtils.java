@@ -6,6 +6,7 @@ import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
@@ -93,6 +94,16 @@ public class RedisUtils {
         return key == null ? null : redisTemplate.opsForValue().get(key);
     }
 
+    /**
+     * 批量获取
+     *
+     * @param keys 键
+     * @return 值 顺序与键一致，不存在的键对应null
+     */
+    public List<Object> mget(Collection<String> keys) {
+        return redisTemplate.opsForValue().multiGet(keys);
+    }
+
     /**
      * 普通缓存放入
      *
@@ -132,6 +143,31 @@ public class RedisUtils {
         }
     }
 
+    /**
+     * 键不存在时放入，不过期
+     *
+     * @param key   键
+     * @param value 值
+     * @return true放入成功 false键已存在
+     */
+    public boolean setIfAbsent(String key, Object value) {
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value);
+        return Boolean.TRUE.equals(success);
+    }
+
+    /**
+     * 键不存在时放入并设置时间
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒) 要大于0
+     * @return true放入成功 false键已存在
+     */
+    public boolean setIfAbsent(String key, Object value, long time) {
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, time, TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(success);
+    }
+
     /**
      * 递增
      *
@@ -903,4 +939,15 @@ public class RedisUtils {
         return redisTemplate.opsForZSet().scan(key, options);
     }
 
+    /**
+     * 执行lua脚本
+     *
+     * @param script 脚本
+     * @param keys   KEYS
+     * @param args   ARGV，按值序列化方式序列化
+     * @return 脚本返回值
+     */
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        return redisTemplate.execute(script, keys, args);
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import top.zway.fic.base.crypto.PasswordHashingBusyException;
 import top.zway.fic.base.result.R;
 import top.zway.fic.base.result.ResultCode;
 
@@ -40,6 +41,13 @@ public class GlobalExceptionHandler {
         return R.failed("超出上传文件允许大小");
     }
 
+    @ResponseStatus(HttpStatus.OK)
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public <T> R<T> handlePasswordHashingBusyException(PasswordHashingBusyException e) {
+        log.warn("密码哈希繁忙：{}", e.getMessage());
+        return R.failed(ResultCode.FLOW_LIMITING);
+    }
+
     @ResponseStatus(HttpStatus.OK)
     @ExceptionHandler(Exception.class)
     public <T> R<T> handleException(Exception e) {
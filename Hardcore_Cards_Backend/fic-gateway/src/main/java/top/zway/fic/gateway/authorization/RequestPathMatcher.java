@@ -0,0 +1,94 @@
+package top.zway.fic.gateway.authorization;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import top.zway.fic.gateway.config.IgnoreUrlsConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预编译的白名单路径匹配，每个请求只判断一次，结果放在exchange属性中
+ * 白名单随配置刷新时重新编译
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestPathMatcher {
+    /**
+     * 请求是否命中白名单
+     */
+    public static final String IGNORED_ATTR = RequestPathMatcher.class.getName() + ".ignored";
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+
+    private final IgnoreUrlsConfig ignoreUrlsConfig;
+
+    private volatile CompiledPatterns compiledPatterns = new CompiledPatterns(null, Collections.emptyList());
+
+    /**
+     * 判断请求是否在白名单中，同一请求只匹配一次
+     */
+    public boolean isIgnored(ServerWebExchange exchange) {
+        Boolean ignored = exchange.getAttribute(IGNORED_ATTR);
+        if (ignored == null) {
+            ignored = isIgnored(exchange.getRequest().getPath().pathWithinApplication());
+            exchange.getAttributes().put(IGNORED_ATTR, ignored);
+        }
+        return ignored;
+    }
+
+    private boolean isIgnored(PathContainer path) {
+        for (PathPattern pathPattern : getIgnorePatterns()) {
+            if (pathPattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 配置刷新后getUrls返回新的列表，按引用判断是否需要重新编译
+     */
+    private List<PathPattern> getIgnorePatterns() {
+        List<String> urls = ignoreUrlsConfig.getUrls();
+        CompiledPatterns current = compiledPatterns;
+        if (current.source != urls) {
+            current = new CompiledPatterns(urls, compile(urls));
+            compiledPatterns = current;
+        }
+        return current.patterns;
+    }
+
+    /**
+     * 编译路径模式
+     *
+     * @param patterns 模式
+     * @return 按具体程度排序的编译结果
+     */
+    public static List<PathPattern> compile(List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<PathPattern> ret = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            ret.add(PARSER.parse(pattern));
+        }
+        ret.sort(PathPattern.SPECIFICITY_COMPARATOR);
+        return Collections.unmodifiableList(ret);
+    }
+
+    private static class CompiledPatterns {
+        private final List<String> source;
+        private final List<PathPattern> patterns;
+
+        private CompiledPatterns(List<String> source, List<PathPattern> patterns) {
+            this.source = source;
+            this.patterns = patterns;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package top.zway.fic.gateway.authorization;
+
+import cn.hutool.core.convert.Convert;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import top.zway.fic.base.constant.AuthConstant;
+import top.zway.fic.base.constant.RedisConstant;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源角色映射的本地只读副本，鉴权时不再访问Redis
+ * 启动时加载，收到认证服务的变更通知后整体替换；定时全量加载兜底丢失的通知
+ * 首次加载成功前处于未加载状态，鉴权拒绝白名单以外的路径，并按重试间隔重新加载
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResourceRolesCache {
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${secure.resource-roles.reload-interval-seconds:300}")
+    private long reloadIntervalSeconds;
+
+    @Value("${secure.resource-roles.retry-interval-seconds:5}")
+    private long retryIntervalSeconds;
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+
+    /**
+     * 不可变快照，角色已带权限前缀；首次加载成功前为null
+     */
+    private volatile Snapshot snapshot;
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        reload();
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "resource-roles-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::reload, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+        executorService.scheduleWithFixedDelay(() -> {
+            if (!isLoaded()) {
+                reload();
+            }
+        }, retryIntervalSeconds, retryIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return 是否已成功加载过，未加载时不能判断路径所需的角色
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 获取路径所需的角色，先按路径精确查找，再按最具体的模式匹配
+     *
+     * @param path 请求路径
+     * @return 带前缀的角色，未配置或尚未加载时为空列表，调用前需先检查{@link #isLoaded()}
+     */
+    public List<String> getAuthorities(PathContainer path) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        List<String> authorities = current.exact.get(path.value());
+        if (authorities != null) {
+            return authorities;
+        }
+        for (PatternRule patternRule : current.patterns) {
+            if (patternRule.pathPattern.matches(path)) {
+                return patternRule.authorities;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 从Redis加载，失败时保留旧快照
+     */
+    public void reload() {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(RedisConstant.RESOURCE_ROLES_MAP);
+            Map<String, List<String>> exact = new HashMap<>((int) (entries.size() / 0.75) + 1);
+            List<PatternRule> patterns = new ArrayList<>();
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                List<String> roles = Convert.toList(String.class, entry.getValue());
+                if (roles == null || roles.isEmpty()) {
+                    continue;
+                }
+                List<String> authorities = new ArrayList<>(roles.size());
+                for (String role : roles) {
+                    authorities.add(AuthConstant.AUTHORITY_PREFIX + role);
+                }
+                String url = String.valueOf(entry.getKey());
+                if (isPattern(url)) {
+                    patterns.add(new PatternRule(PARSER.parse(url), Collections.unmodifiableList(authorities)));
+                } else {
+                    exact.put(url, Collections.unmodifiableList(authorities));
+                }
+            }
+            patterns.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.pathPattern, b.pathPattern));
+            snapshot = new Snapshot(Collections.unmodifiableMap(exact), Collections.unmodifiableList(patterns));
+            log.info("资源角色映射已加载，精确路径{}条，模式{}条", exact.size(), patterns.size());
+        } catch (Exception e) {
+            log.error("加载资源角色映射失败，{}", isLoaded() ? "继续使用旧数据" : "白名单以外的路径暂时拒绝访问", e);
+        }
+    }
+
+    private static boolean isPattern(String url) {
+        return url.indexOf('*') >= 0 || url.indexOf('?') >= 0 || url.indexOf('{') >= 0;
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<String>> exact;
+        private final List<PatternRule> patterns;
+
+        private Snapshot(Map<String, List<String>> exact, List<PatternRule> patterns) {
+            this.exact = exact;
+            this.patterns = patterns;
+        }
+    }
+
+    private static class PatternRule {
+        private final PathPattern pathPattern;
+        private final List<String> authorities;
+
+        private PatternRule(PathPattern pathPattern, List<String> authorities) {
+            this.pathPattern = pathPattern;
+            this.authorities = authorities;
+        }
+    }
+}
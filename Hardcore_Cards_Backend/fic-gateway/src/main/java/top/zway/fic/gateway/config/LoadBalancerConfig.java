@@ -0,0 +1,57 @@
+package top.zway.fic.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * lb路由的负载均衡配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+@RefreshScope
+public class LoadBalancerConfig {
+    /**
+     * 实例延迟EWMA的衰减时间（毫秒），越小对实例变慢越敏感
+     */
+    private long decayMillis = 10000;
+    /**
+     * 请求失败或返回5xx时按此延迟（毫秒）计入EWMA
+     */
+    private long failurePenaltyMillis = 2000;
+
+    private Hedge hedge = new Hedge();
+
+    private Affinity affinity = new Affinity();
+
+    @Data
+    public static class Hedge {
+        private boolean enabled;
+        /**
+         * 允许对冲的GET请求路径，必须是幂等接口
+         */
+        private List<String> paths;
+        /**
+         * 首个请求超过服务近期延迟的此分位仍未响应时，向另一个实例发出对冲请求
+         */
+        private double percentile = 0.95;
+        private long minDelayMillis = 20;
+        private long maxDelayMillis = 1000;
+    }
+
+    @Data
+    public static class Affinity {
+        /**
+         * 每个实例在哈希环上的虚拟节点数
+         */
+        private int virtualNodes = 160;
+        /**
+         * 单个实例的在途请求上限为平均值的倍数，超过时顺延到下一个实例
+         */
+        private double loadFactor = 1.25;
+    }
+}
@@ -0,0 +1,33 @@
+package top.zway.fic.gateway.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.gateway.authorization.ResourceRolesCache;
+import top.zway.fic.gateway.token.RevocationList;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis订阅，回调在监听容器的线程上执行，不占用netty事件循环
+ * token撤销通知由认证服务用StringRedisTemplate发布，消息体按UTF-8字符串读取
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       ResourceRolesCache resourceRolesCache,
+                                                                       RevocationList revocationList) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> resourceRolesCache.reload(),
+                new ChannelTopic(RedisConstant.RESOURCE_ROLES_CHANNEL));
+        container.addMessageListener((message, pattern) -> revocationList.add(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RedisConstant.TOKEN_REVOKED_CHANNEL));
+        return container;
+    }
+}
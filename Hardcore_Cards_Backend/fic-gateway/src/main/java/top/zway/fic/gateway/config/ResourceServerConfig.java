@@ -21,6 +21,7 @@ import top.zway.fic.base.constant.AuthConstant;
 import top.zway.fic.gateway.authorization.AuthorizationManager;
 import top.zway.fic.gateway.handler.RestAuthenticationEntryPoint;
 import top.zway.fic.gateway.handler.RestfulAccessDeniedHandler;
+import top.zway.fic.gateway.token.TokenVerifier;
 
 import java.util.Arrays;
 
@@ -32,10 +33,13 @@ public class ResourceServerConfig {
     private final IgnoreUrlsConfig ignoreUrlsConfig;
     private final RestfulAccessDeniedHandler restfulAccessDeniedHandler;
     private final RestAuthenticationEntryPoint restAuthenticationEntryPoint;
+    private final TokenVerifier tokenVerifier;
 
     @Bean
     public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
         http.oauth2ResourceServer().jwt()
+                // 过滤器中已验签的token直接命中缓存
+                .jwtDecoder(tokenVerifier::decode)
                 .jwtAuthenticationConverter(jwtAuthenticationConverter());
         http.authorizeExchange()
                 // 白名单配置
@@ -0,0 +1,116 @@
+package top.zway.fic.gateway.filter;
+
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按请求中的亲和键（如kanbanId）把同一个键的请求路由到同一个实例，在路由的filters中配置：
+ * <pre>
+ * - Affinity=kanbanId
+ * </pre>
+ * 先取查询参数，没有时再从JSON请求体的顶层字段中取；请求体读取后缓存供下游转发
+ * 实际的实例选择在{@link LatencyAwareLoadBalancerFilter}中进行，不带亲和键的请求仍按延迟选择
+ */
+@Component
+@Slf4j
+public class AffinityGatewayFilterFactory extends AbstractGatewayFilterFactory<AffinityGatewayFilterFactory.Config> {
+    /**
+     * 请求的亲和键
+     */
+    public static final String AFFINITY_KEY_ATTR = AffinityGatewayFilterFactory.class.getName() + ".key";
+
+    /**
+     * 超过此大小或长度未知的请求体不解析
+     */
+    private static final long MAX_BODY_BYTES = 64 * 1024;
+
+    public AffinityGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Collections.singletonList("param");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String key = request.getQueryParams().getFirst(config.getParam());
+            if (key != null && !key.isEmpty()) {
+                exchange.getAttributes().put(AFFINITY_KEY_ATTR, key);
+                return chain.filter(exchange);
+            }
+            long contentLength = request.getHeaders().getContentLength();
+            MediaType contentType = request.getHeaders().getContentType();
+            if (contentLength <= 0 || contentLength > MAX_BODY_BYTES
+                    || contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                return chain.filter(exchange);
+            }
+            return DataBufferUtils.join(request.getBody())
+                    .map(dataBuffer -> {
+                        byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                        dataBuffer.read(bytes);
+                        DataBufferUtils.release(dataBuffer);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        String bodyKey = readKey(bytes, config.getParam());
+                        if (bodyKey != null) {
+                            exchange.getAttributes().put(AFFINITY_KEY_ATTR, bodyKey);
+                        }
+                        ServerHttpRequest cachedBodyRequest = new ServerHttpRequestDecorator(request) {
+                            @Override
+                            public Flux<DataBuffer> getBody() {
+                                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+                            }
+                        };
+                        return chain.filter(exchange.mutate().request(cachedBodyRequest).build());
+                    });
+        };
+    }
+
+    private static String readKey(byte[] body, String param) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JSON json = JSONUtil.parse(new String(body, StandardCharsets.UTF_8));
+            if (json instanceof JSONObject) {
+                Object value = ((JSONObject) json).get(param);
+                return value == null ? null : String.valueOf(value);
+            }
+        } catch (Exception e) {
+            log.debug("请求体不是合法的JSON，不按亲和键路由", e);
+        }
+        return null;
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 亲和键的参数名
+         */
+        private String param;
+    }
+}
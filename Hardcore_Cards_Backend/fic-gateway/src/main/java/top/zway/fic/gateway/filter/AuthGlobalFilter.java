@@ -1,7 +1,5 @@
 package top.zway.fic.gateway.filter;
 
-import cn.hutool.core.util.StrUtil;
-import com.nimbusds.jose.JWSObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -10,8 +8,8 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-
-import java.text.ParseException;
+import top.zway.fic.gateway.token.TokenVerifier;
+import top.zway.fic.gateway.token.VerifiedToken;
 
 @Component
 @Slf4j
@@ -19,26 +17,20 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
-        if (StrUtil.isEmpty(token)) {
+        // 使用已验签的token，不再重复解析
+        VerifiedToken verifiedToken = TokenVerifier.getVerifiedToken(exchange);
+        if (verifiedToken == null) {
             return chain.filter(exchange);
         }
-        try {
-            //从token中解析用户信息并设置到Header中去
-            String realToken = token.replace("Bearer ", "");
-            JWSObject jwsObject = JWSObject.parse(realToken);
-            String userStr = jwsObject.getPayload().toString();
-            log.info("AuthGlobalFilter.filter() user:{}",userStr);
-            ServerHttpRequest request = exchange.getRequest().mutate().header("user", userStr).build();
-            exchange = exchange.mutate().request(request).build();
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return chain.filter(exchange);
+        //从token中解析用户信息并设置到Header中去
+        String userStr = verifiedToken.getPayload();
+        log.debug("AuthGlobalFilter.filter() user:{}", userStr);
+        ServerHttpRequest request = exchange.getRequest().mutate().header("user", userStr).build();
+        return chain.filter(exchange.mutate().request(request).build());
     }
 
     @Override
     public int getOrder() {
         return 0;
     }
-}
\ No newline at end of file
+}
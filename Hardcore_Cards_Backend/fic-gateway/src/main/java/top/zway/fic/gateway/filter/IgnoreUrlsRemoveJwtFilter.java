@@ -1,68 +1,59 @@
 package top.zway.fic.gateway.filter;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.jwt.JWT;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 import top.zway.fic.base.constant.AuthConstant;
-import top.zway.fic.gateway.config.IgnoreUrlsConfig;
+import top.zway.fic.gateway.authorization.RequestPathMatcher;
+import top.zway.fic.gateway.token.TokenVerifier;
 
-import java.net.URI;
-import java.util.List;
+import java.util.Optional;
 
+/**
+ * 白名单路径移除token；其余路径在这里统一验签一次，结果放入exchange属性，无效或过期的token移除
+ */
 @Component
 @RequiredArgsConstructor
 public class IgnoreUrlsRemoveJwtFilter implements WebFilter, Ordered {
-    private final IgnoreUrlsConfig ignoreUrlsConfig;
+    private final RequestPathMatcher requestPathMatcher;
+    private final TokenVerifier tokenVerifier;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        URI uri = request.getURI();
-        PathMatcher pathMatcher = new AntPathMatcher();
         //白名单路径移除JWT请求头
-        List<String> ignoreUrls = ignoreUrlsConfig.getUrls();
-        for (String ignoreUrl : ignoreUrls) {
-            if (pathMatcher.match(ignoreUrl, uri.getPath())) {
-                request = exchange.getRequest().mutate().header(AuthConstant.AUTHORIZATION_HEADER_KEY, "").build();
-                exchange = exchange.mutate().request(request).build();
-                return chain.filter(exchange);
-            }
+        if (requestPathMatcher.isIgnored(exchange)) {
+            return chain.filter(removeToken(exchange));
         }
-        List<String> tokens = exchange.getRequest().getHeaders().get(AuthConstant.AUTHORIZATION_HEADER_KEY);
-        if (tokens != null && !tokens.isEmpty()) {
-            String token = tokens.get(0);
-            if (!StrUtil.isEmpty(token)) {
-                if (!token.startsWith(AuthConstant.TOKEN_REQUEST_HEADER_START_WITH)) {
-                    request = exchange.getRequest().mutate().header(AuthConstant.AUTHORIZATION_HEADER_KEY, "").build();
-                    exchange = exchange.mutate().request(request).build();
-                    return chain.filter(exchange);
-                }
-                token = token.substring(AuthConstant.TOKEN_REQUEST_HEADER_START_WITH.length());
-                Integer exp;
-                try {
-                    exp = (Integer) JWT.of(token).getPayload("exp");
-                } catch (Exception e) {
-                    request = exchange.getRequest().mutate().header(AuthConstant.AUTHORIZATION_HEADER_KEY, "").build();
-                    exchange = exchange.mutate().request(request).build();
-                    return chain.filter(exchange);
-                }
-                if (exp < System.currentTimeMillis() / 1000) {
-                    request = exchange.getRequest().mutate().header(AuthConstant.AUTHORIZATION_HEADER_KEY, "").build();
-                    exchange = exchange.mutate().request(request).build();
-                    return chain.filter(exchange);
-                }
-            }
+        String token = exchange.getRequest().getHeaders().getFirst(AuthConstant.AUTHORIZATION_HEADER_KEY);
+        if (StrUtil.isEmpty(token)) {
+            return chain.filter(exchange);
+        }
+        if (!token.startsWith(AuthConstant.TOKEN_REQUEST_HEADER_START_WITH)) {
+            return chain.filter(removeToken(exchange));
         }
-        return chain.filter(exchange);
+        return tokenVerifier.verify(token.substring(AuthConstant.TOKEN_REQUEST_HEADER_START_WITH.length()))
+                .map(Optional::of)
+                .onErrorResume(JwtException.class, e -> Mono.just(Optional.empty()))
+                .flatMap(verifiedToken -> {
+                    if (!verifiedToken.isPresent()) {
+                        // 验签失败或已过期
+                        return chain.filter(removeToken(exchange));
+                    }
+                    exchange.getAttributes().put(TokenVerifier.VERIFIED_TOKEN_ATTR, verifiedToken.get());
+                    return chain.filter(exchange);
+                });
+    }
+
+    private ServerWebExchange removeToken(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest().mutate().header(AuthConstant.AUTHORIZATION_HEADER_KEY, "").build();
+        return exchange.mutate().request(request).build();
     }
 
     /**
@@ -72,4 +63,4 @@ public class IgnoreUrlsRemoveJwtFilter implements WebFilter, Ordered {
     public int getOrder() {
         return Ordered.HIGHEST_PRECEDENCE;
     }
-}
\ No newline at end of file
+}
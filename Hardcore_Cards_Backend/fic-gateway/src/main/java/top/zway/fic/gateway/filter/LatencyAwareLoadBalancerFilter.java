@@ -0,0 +1,242 @@
+package top.zway.fic.gateway.filter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import top.zway.fic.gateway.authorization.RequestPathMatcher;
+import top.zway.fic.gateway.config.LoadBalancerConfig;
+import top.zway.fic.gateway.loadbalancer.LatencyAwareLoadBalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 替代默认的轮询负载均衡，按实例延迟选择lb路由的目标实例
+ * 配置允许对冲的幂等GET请求在首个实例超过分位延迟未响应时，再发给另一个实例，取先返回的结果；
+ * 对冲请求的响应会整体缓冲，只用于响应较小的查询接口
+ * 路由配置了Affinity过滤器且请求带亲和键时，按一致性哈希选择实例
+ * ws等带协议前缀的lb路由仍由默认过滤器处理
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LatencyAwareLoadBalancerFilter implements GlobalFilter, Ordered {
+    private static final String LB_SCHEME = "lb";
+
+    private final LatencyAwareLoadBalancer loadBalancer;
+    private final LoadBalancerConfig loadBalancerConfig;
+    private final HttpClient httpClient;
+    private final HttpClientProperties httpClientProperties;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+
+    private volatile CompiledPatterns hedgePatterns = new CompiledPatterns(null, Collections.emptyList());
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        String schemePrefix = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_SCHEME_PREFIX_ATTR);
+        if (url == null || !LB_SCHEME.equals(url.getScheme()) || schemePrefix != null) {
+            return chain.filter(exchange);
+        }
+        String serviceId = url.getHost();
+        String affinityKey = exchange.getAttribute(AffinityGatewayFilterFactory.AFFINITY_KEY_ATTR);
+        ServiceInstance instance = affinityKey == null
+                ? loadBalancer.choose(serviceId, null) : loadBalancer.chooseByAffinity(serviceId, affinityKey);
+        if (instance == null) {
+            // 交给默认过滤器返回找不到实例的错误
+            return chain.filter(exchange);
+        }
+        boolean hedgeable = isHedgeable(exchange);
+        ServerWebExchangeUtils.addOriginalRequestUrl(exchange, url);
+        if (hedgeable) {
+            long delay = loadBalancer.hedgeDelayMillis(serviceId);
+            ServiceInstance backup = delay < 0 ? null : loadBalancer.choose(serviceId, instance);
+            if (backup != null) {
+                return hedge(exchange, serviceId, url, instance, backup, delay);
+            }
+        }
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, reconstructUri(instance, url));
+        LatencyAwareLoadBalancer.Call call = loadBalancer.begin(serviceId, instance);
+        ServerHttpResponse response = exchange.getResponse();
+        // 以收到上游响应头（开始写回响应）的时间作为实例延迟，不受客户端接收速度影响
+        response.beforeCommit(() -> {
+            call.complete(!isServerError(response.getStatusCode()));
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doOnError(e -> call.complete(false))
+                .doFinally(signal -> call.cancel());
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, String serviceId, URI url,
+                             ServiceInstance primary, ServiceInstance backup, long delayMillis) {
+        HttpHeaders filtered = HttpHeadersFilter.filterRequest(headersFiltersProvider.getIfAvailable(), exchange);
+        Mono<HedgedResponse> backupRequest = Mono.delay(Duration.ofMillis(delayMillis))
+                .then(Mono.defer(() -> send(serviceId, backup, url, filtered)));
+        Mono<HedgedResponse> first = Mono.first(send(serviceId, primary, url, filtered), backupRequest);
+        Duration responseTimeout = httpClientProperties.getResponseTimeout();
+        if (responseTimeout != null) {
+            first = first.timeout(responseTimeout)
+                    .onErrorMap(TimeoutException.class,
+                            e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), e));
+        }
+        return first.flatMap(hedgedResponse -> write(exchange, hedgedResponse));
+    }
+
+    private Mono<HedgedResponse> send(String serviceId, ServiceInstance instance, URI url, HttpHeaders filtered) {
+        return Mono.defer(() -> {
+            URI requestUrl = reconstructUri(instance, url);
+            LatencyAwareLoadBalancer.Call call = loadBalancer.begin(serviceId, instance);
+            return httpClient
+                    .headers(headers -> {
+                        filtered.forEach(headers::set);
+                        headers.remove(HttpHeaders.HOST);
+                    })
+                    .get()
+                    .uri(requestUrl.toASCIIString())
+                    .responseSingle((res, body) -> {
+                        HttpHeaders responseHeaders = new HttpHeaders();
+                        for (Map.Entry<String, String> entry : res.responseHeaders()) {
+                            responseHeaders.add(entry.getKey(), entry.getValue());
+                        }
+                        int status = res.status().code();
+                        return body.asByteArray()
+                                .defaultIfEmpty(new byte[0])
+                                .map(bytes -> new HedgedResponse(requestUrl, status, responseHeaders, bytes));
+                    })
+                    .doOnNext(hedgedResponse -> call.complete(hedgedResponse.status < HttpStatus.INTERNAL_SERVER_ERROR.value()))
+                    .doOnError(e -> call.complete(false))
+                    .doOnCancel(call::cancel);
+        });
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, HedgedResponse hedgedResponse) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpStatus status = HttpStatus.resolve(hedgedResponse.status);
+        if (status != null) {
+            response.setStatusCode(status);
+        } else if (response instanceof AbstractServerHttpResponse) {
+            ((AbstractServerHttpResponse) response).setStatusCodeValue(hedgedResponse.status);
+        } else {
+            response.setStatusCode(HttpStatus.BAD_GATEWAY);
+        }
+        String contentType = hedgedResponse.headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            exchange.getAttributes().put(ServerWebExchangeUtils.ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR, contentType);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(HttpHeadersFilter.filter(headersFiltersProvider.getIfAvailable(), hedgedResponse.headers,
+                exchange, HttpHeadersFilter.Type.RESPONSE));
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.setContentLength(hedgedResponse.body.length);
+        response.getHeaders().putAll(headers);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, hedgedResponse.requestUrl);
+        // 已由本过滤器完成转发，后续的路由过滤器跳过
+        ServerWebExchangeUtils.setAlreadyRouted(exchange);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(hedgedResponse.body)));
+    }
+
+    private boolean isHedgeable(ServerWebExchange exchange) {
+        LoadBalancerConfig.Hedge hedge = loadBalancerConfig.getHedge();
+        if (!hedge.isEnabled() || exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        List<PathPattern> patterns = getHedgePatterns(hedge.getPaths());
+        if (patterns.isEmpty()) {
+            return false;
+        }
+        // 按客户端请求的原始路径匹配，不受StripPrefix影响
+        PathContainer path = PathContainer.parsePath(getOriginalPath(exchange));
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getOriginalPath(ServerWebExchange exchange) {
+        Set<URI> originalUrls = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if (originalUrls != null && !originalUrls.isEmpty()) {
+            return originalUrls.iterator().next().getRawPath();
+        }
+        return exchange.getRequest().getURI().getRawPath();
+    }
+
+    private List<PathPattern> getHedgePatterns(List<String> paths) {
+        CompiledPatterns current = hedgePatterns;
+        if (current.source != paths) {
+            current = new CompiledPatterns(paths, RequestPathMatcher.compile(paths));
+            hedgePatterns = current;
+        }
+        return current.patterns;
+    }
+
+    private static URI reconstructUri(ServiceInstance instance, URI original) {
+        return UriComponentsBuilder.fromUri(original)
+                .scheme(instance.isSecure() ? "https" : "http")
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    private static boolean isServerError(HttpStatus status) {
+        return status != null && status.is5xxServerError();
+    }
+
+    @Override
+    public int getOrder() {
+        return LoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+
+    private static class HedgedResponse {
+        private final URI requestUrl;
+        private final int status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        private HedgedResponse(URI requestUrl, int status, HttpHeaders headers, byte[] body) {
+            this.requestUrl = requestUrl;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private static class CompiledPatterns {
+        private final List<String> source;
+        private final List<PathPattern> patterns;
+
+        private CompiledPatterns(List<String> source, List<PathPattern> patterns) {
+            this.source = source;
+            this.patterns = patterns;
+        }
+    }
+}
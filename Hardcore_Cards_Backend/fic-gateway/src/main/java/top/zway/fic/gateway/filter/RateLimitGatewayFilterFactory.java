@@ -0,0 +1,197 @@
+package top.zway.fic.gateway.filter;
+
+import cn.hutool.json.JSONUtil;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.result.R;
+import top.zway.fic.base.result.ResultCode;
+import top.zway.fic.gateway.token.TokenVerifier;
+import top.zway.fic.gateway.token.VerifiedToken;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按用户限流，在路由的filters中配置：
+ * <pre>
+ * - name: RateLimit
+ *   args:
+ *     replenishRate: 10
+ *     burstCapacity: 20
+ *     windowSeconds: 60
+ *     windowLimit: 300
+ * </pre>
+ * 先过本地令牌桶，通过后再过redis滑动窗口做集群总量控制；redis不可用时放行
+ * 用户取自已验签token的id，未登录按客户端地址
+ */
+@Component
+@Slf4j
+public class RateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<RateLimitGatewayFilterFactory.Config> {
+    /**
+     * 本地令牌桶数超过此值时清理空闲的桶
+     */
+    private static final int MAX_BUCKETS = 100000;
+    private static final long BUCKET_IDLE_MILLIS = 60 * 1000;
+
+    /**
+     * 移除窗口外的请求，未超限时记录本次请求
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('zremrangebyscore', KEYS[1], 0, tonumber(ARGV[1]) - tonumber(ARGV[2])) " +
+                    "if redis.call('zcard', KEYS[1]) < tonumber(ARGV[3]) then " +
+                    "redis.call('zadd', KEYS[1], ARGV[1], ARGV[4]) " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+                    "return 0", Long.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    public RateLimitGatewayFilterFactory(ReactiveStringRedisTemplate reactiveStringRedisTemplate) {
+        super(Config.class);
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("replenishRate", "burstCapacity", "windowSeconds", "windowLimit");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        return (exchange, chain) -> {
+            String user = resolveUser(exchange);
+            if (config.getReplenishRate() > 0 && !acquireLocal(buckets, user, config)) {
+                return reject(exchange);
+            }
+            if (config.getWindowLimit() <= 0) {
+                return chain.filter(exchange);
+            }
+            return acquireCluster(exchange, user, config)
+                    .flatMap(allowed -> allowed ? chain.filter(exchange) : reject(exchange));
+        };
+    }
+
+    private boolean acquireLocal(Map<String, TokenBucket> buckets, String user, Config config) {
+        TokenBucket bucket = buckets.get(user);
+        if (bucket == null) {
+            if (buckets.size() > MAX_BUCKETS) {
+                long now = System.currentTimeMillis();
+                buckets.values().removeIf(b -> b.isIdle(now));
+            }
+            bucket = buckets.computeIfAbsent(user, k -> new TokenBucket(config.getReplenishRate(), config.getBurstCapacity()));
+        }
+        return bucket.tryAcquire();
+    }
+
+    private Mono<Boolean> acquireCluster(ServerWebExchange exchange, String user, Config config) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route == null ? "" : route.getId();
+        long now = System.currentTimeMillis();
+        List<String> keys = Collections.singletonList(RedisConstant.RATE_LIMIT_PREFIX + routeId + ":" + user);
+        return reactiveStringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT, keys,
+                Arrays.asList(String.valueOf(now), String.valueOf(config.getWindowSeconds() * 1000L),
+                        String.valueOf(config.getWindowLimit()), now + ":" + ThreadLocalRandom.current().nextInt()))
+                .next()
+                .map(result -> result == 1)
+                .onErrorResume(e -> {
+                    log.warn("redis限流失败，放行", e);
+                    return Mono.just(true);
+                })
+                .defaultIfEmpty(true);
+    }
+
+    private String resolveUser(ServerWebExchange exchange) {
+        VerifiedToken verifiedToken = TokenVerifier.getVerifiedToken(exchange);
+        if (verifiedToken != null && verifiedToken.getUserId() != null) {
+            return String.valueOf(verifiedToken.getUserId());
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return remoteAddress == null ? "unknown" : remoteAddress.getAddress().getHostAddress();
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        String body = JSONUtil.toJsonStr(R.failed(ResultCode.FLOW_LIMITING));
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 本地令牌桶每秒补充的令牌数，0表示不启用
+         */
+        private double replenishRate;
+        /**
+         * 本地令牌桶容量，即允许的突发请求数
+         */
+        private int burstCapacity;
+        /**
+         * 集群滑动窗口长度（秒）
+         */
+        private int windowSeconds = 60;
+        /**
+         * 集群滑动窗口内允许的请求数，0表示不启用
+         */
+        private int windowLimit;
+    }
+
+    /**
+     * 惰性补充的令牌桶
+     */
+    private static class TokenBucket {
+        private final double replenishRate;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillTime;
+
+        private TokenBucket(double replenishRate, int burstCapacity) {
+            this.replenishRate = replenishRate;
+            this.capacity = Math.max(burstCapacity, 1);
+            this.tokens = this.capacity;
+            this.lastRefillTime = System.currentTimeMillis();
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefillTime) * replenishRate / 1000);
+            lastRefillTime = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        /**
+         * 长时间未使用的桶可以删除，下次请求时重建
+         */
+        private synchronized boolean isIdle(long now) {
+            return now - lastRefillTime > BUCKET_IDLE_MILLIS;
+        }
+    }
+}
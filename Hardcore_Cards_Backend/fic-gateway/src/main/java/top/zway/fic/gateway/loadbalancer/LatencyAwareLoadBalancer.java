@@ -0,0 +1,316 @@
+package top.zway.fic.gateway.loadbalancer;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+import top.zway.fic.gateway.config.LoadBalancerConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按实例延迟选择实例：每个实例维护峰值敏感的EWMA延迟和在途请求数，
+ * 随机取两个实例，选代价（EWMA * (在途数 + 1)）较小的一个
+ * 同时按服务记录近期延迟分布，用于计算对冲请求的等待时间
+ * 带亲和键的请求按一致性哈希选择实例，并限制单个实例的在途请求不超过平均值的一定倍数
+ */
+@Component
+@RequiredArgsConstructor
+public class LatencyAwareLoadBalancer {
+    /**
+     * 每个服务保留的近期延迟样本数
+     */
+    private static final int WINDOW_SIZE = 512;
+    /**
+     * 样本数不足时不计算分位，也不对冲
+     */
+    private static final int MIN_SAMPLES = 64;
+    private static final int RECOMPUTE_INTERVAL = 32;
+    /**
+     * 还没有延迟样本但已有请求在途的实例（刚上线），按此代价避让，空闲时才分给它
+     */
+    private static final double COLD_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final DiscoveryClient discoveryClient;
+    private final LoadBalancerConfig loadBalancerConfig;
+
+    private final Map<String, InstanceStats> instanceStats = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> serviceWindows = new ConcurrentHashMap<>();
+    private final Map<String, HashRing> hashRings = new ConcurrentHashMap<>();
+
+    /**
+     * 选择实例
+     *
+     * @param serviceId 服务名
+     * @param exclude   排除的实例，可为null
+     * @return 实例，没有可用实例时为null
+     */
+    public ServiceInstance choose(String serviceId, ServiceInstance exclude) {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        if (exclude != null) {
+            String excludeKey = key(exclude);
+            List<ServiceInstance> candidates = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                if (!excludeKey.equals(key(instance))) {
+                    candidates.add(instance);
+                }
+            }
+            instances = candidates;
+        }
+        int size = instances.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        ServiceInstance a = instances.get(i);
+        ServiceInstance b = instances.get(j);
+        long now = System.nanoTime();
+        long decayNanos = decayNanos();
+        return stats(a).cost(now, decayNanos) <= stats(b).cost(now, decayNanos) ? a : b;
+    }
+
+    /**
+     * 按亲和键选择实例，同一个键总是落到同一个实例，实例增减时只有相邻区间的键迁移
+     * 目标实例在途请求达到上限时，沿哈希环顺延到下一个未超限的实例
+     *
+     * @param serviceId 服务名
+     * @param key       亲和键
+     * @return 实例，没有可用实例时为null
+     */
+    public ServiceInstance chooseByAffinity(String serviceId, String key) {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        int size = instances.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return instances.get(0);
+        }
+        HashRing ring = getHashRing(serviceId, instances);
+        long totalInflight = 0;
+        for (ServiceInstance instance : ring.instances) {
+            totalInflight += stats(instance).inflight.get();
+        }
+        double loadFactor = Math.max(loadBalancerConfig.getAffinity().getLoadFactor(), 1);
+        long capacity = (long) Math.ceil(loadFactor * (totalInflight + 1) / ring.instances.size());
+        int start = ring.indexOf(MurmurHash.hash32(key));
+        Set<ServiceInstance> visited = new HashSet<>();
+        for (int i = 0; i < ring.nodes.length && visited.size() < ring.instances.size(); i++) {
+            ServiceInstance instance = ring.nodes[(start + i) % ring.nodes.length];
+            if (visited.add(instance) && stats(instance).inflight.get() < capacity) {
+                return instance;
+            }
+        }
+        return ring.nodes[start];
+    }
+
+    /**
+     * 实例列表变化（Nacos上下线）或虚拟节点数调整后重建哈希环
+     */
+    private HashRing getHashRing(String serviceId, List<ServiceInstance> instances) {
+        List<ServiceInstance> sorted = new ArrayList<>(instances);
+        sorted.sort(Comparator.comparing(LatencyAwareLoadBalancer::key));
+        int virtualNodes = Math.max(loadBalancerConfig.getAffinity().getVirtualNodes(), 1);
+        StringBuilder signature = new StringBuilder().append(virtualNodes);
+        for (ServiceInstance instance : sorted) {
+            signature.append(',').append(key(instance));
+        }
+        HashRing ring = hashRings.get(serviceId);
+        if (ring == null || !ring.signature.equals(signature.toString())) {
+            ring = new HashRing(signature.toString(), sorted, virtualNodes);
+            hashRings.put(serviceId, ring);
+        }
+        return ring;
+    }
+
+    /**
+     * 开始向实例发送请求，返回的调用在结束时必须complete或cancel
+     */
+    public Call begin(String serviceId, ServiceInstance instance) {
+        InstanceStats stats = stats(instance);
+        stats.inflight.incrementAndGet();
+        return new Call(serviceId, stats, System.nanoTime());
+    }
+
+    /**
+     * 对冲等待时间，取服务近期延迟的配置分位
+     *
+     * @return 毫秒，样本不足时为-1
+     */
+    public long hedgeDelayMillis(String serviceId) {
+        LatencyWindow window = serviceWindows.get(serviceId);
+        if (window == null || window.percentileNanos < 0) {
+            return -1;
+        }
+        LoadBalancerConfig.Hedge hedge = loadBalancerConfig.getHedge();
+        long delay = TimeUnit.NANOSECONDS.toMillis(window.percentileNanos);
+        return Math.min(Math.max(delay, hedge.getMinDelayMillis()), hedge.getMaxDelayMillis());
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return instanceStats.computeIfAbsent(key(instance), k -> new InstanceStats());
+    }
+
+    private long decayNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(loadBalancerConfig.getDecayMillis(), 1));
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * 一次发往实例的请求，complete和cancel只有第一次调用生效
+     */
+    public final class Call {
+        private final String serviceId;
+        private final InstanceStats stats;
+        private final long startNanos;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Call(String serviceId, InstanceStats stats, long startNanos) {
+            this.serviceId = serviceId;
+            this.stats = stats;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 收到响应或失败，记录延迟
+         *
+         * @param success 失败按惩罚延迟计入EWMA，不计入服务延迟分布
+         */
+        public void complete(boolean success) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            stats.inflight.decrementAndGet();
+            if (success) {
+                stats.observe(elapsed, decayNanos());
+                serviceWindows.computeIfAbsent(serviceId, k -> new LatencyWindow())
+                        .add(elapsed, loadBalancerConfig.getHedge().getPercentile());
+            } else {
+                long penalty = TimeUnit.MILLISECONDS.toNanos(loadBalancerConfig.getFailurePenaltyMillis());
+                stats.observe(Math.max(elapsed, penalty), decayNanos());
+            }
+        }
+
+        /**
+         * 请求被取消（如对冲中落败的一方），延迟未知，只减在途数
+         */
+        public void cancel() {
+            if (done.compareAndSet(false, true)) {
+                stats.inflight.decrementAndGet();
+            }
+        }
+    }
+
+    private static class InstanceStats {
+        private final AtomicInteger inflight = new AtomicInteger();
+        private double ewma;
+        private long stamp = System.nanoTime();
+
+        /**
+         * 比当前值慢的样本直接作为新值，更快的样本按距上次观测的时间衰减合并
+         */
+        private synchronized void observe(long rttNanos, long decayNanos) {
+            long now = System.nanoTime();
+            double weight = Math.exp(-Math.max(now - stamp, 0) / (double) decayNanos);
+            ewma = rttNanos > ewma ? rttNanos : ewma * weight + rttNanos * (1 - weight);
+            stamp = now;
+        }
+
+        /**
+         * 长时间没有观测时延迟估计随时间衰减，变慢的实例空闲一段时间后会重新被尝试
+         */
+        private synchronized double cost(long now, long decayNanos) {
+            int pending = inflight.get();
+            if (ewma == 0) {
+                return pending == 0 ? 0 : COLD_PENALTY_NANOS + pending;
+            }
+            double decayed = ewma * Math.exp(-Math.max(now - stamp, 0) / (double) decayNanos);
+            return decayed * (pending + 1);
+        }
+    }
+
+    private static class HashRing {
+        private final String signature;
+        private final List<ServiceInstance> instances;
+        private final int[] hashes;
+        private final ServiceInstance[] nodes;
+
+        private HashRing(String signature, List<ServiceInstance> instances, int virtualNodes) {
+            this.signature = signature;
+            this.instances = instances;
+            int total = instances.size() * virtualNodes;
+            long[] entries = new long[total];
+            int n = 0;
+            for (int i = 0; i < instances.size(); i++) {
+                String instanceKey = key(instances.get(i));
+                for (int v = 0; v < virtualNodes; v++) {
+                    // 高32位为哈希值，低32位为实例下标，排序后即为环上顺序
+                    entries[n++] = ((long) MurmurHash.hash32(instanceKey + "#" + v) << 32) | i;
+                }
+            }
+            Arrays.sort(entries);
+            this.hashes = new int[total];
+            this.nodes = new ServiceInstance[total];
+            for (int i = 0; i < total; i++) {
+                hashes[i] = (int) (entries[i] >> 32);
+                nodes[i] = instances.get((int) entries[i]);
+            }
+        }
+
+        /**
+         * 环上第一个哈希值不小于给定值的节点
+         */
+        private int indexOf(int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == hashes.length ? 0 : index;
+        }
+    }
+
+    private static class LatencyWindow {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private volatile long percentileNanos = -1;
+
+        private synchronized void add(long rttNanos, double percentile) {
+            samples[next] = rttNanos;
+            next = (next + 1) % WINDOW_SIZE;
+            if (count < WINDOW_SIZE) {
+                count++;
+            }
+            if (count >= MIN_SAMPLES && next % RECOMPUTE_INTERVAL == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile * count) - 1;
+                percentileNanos = sorted[Math.min(Math.max(index, 0), count - 1)];
+            }
+        }
+    }
+}
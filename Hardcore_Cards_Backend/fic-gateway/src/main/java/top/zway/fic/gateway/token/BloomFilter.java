@@ -0,0 +1,63 @@
+package top.zway.fic.gateway.token;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器，只会误判存在，不会漏判
+ * 位数组和哈希次数按预期条数和误判率计算，多个线程可同时添加和查询
+ * 对一次64位MurmurHash的高低32位做双重哈希得到各个位置
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+
+    public BloomFilter(long expectedEntries, double fpp) {
+        long n = Math.max(1, expectedEntries);
+        long m = (long) (-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        // 向上取整到64的倍数，至少一个long
+        int words = (int) Math.max(1, (m + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    public void add(String value) {
+        long hash = MurmurHash.hash64(value.getBytes(StandardCharsets.UTF_8));
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long old;
+            do {
+                old = bits.get(word);
+                if ((old & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, old, old | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = MurmurHash.hash64(value.getBytes(StandardCharsets.UTF_8));
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combinedHash) {
+        // 取反保证非负
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitSize;
+    }
+}
@@ -0,0 +1,126 @@
+package top.zway.fic.gateway.token;
+
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验签公钥的本地副本，验签时只读内存，不发起http请求
+ * 启动时从认证服务拉取，之后在后台定时刷新；刷新失败或认证服务响应慢时继续使用已有的公钥
+ * 遇到未知的公钥（认证服务换了密钥）时提前触发一次刷新，两次按需刷新之间有最小间隔
+ */
+@Component
+@Slf4j
+public class JwkSetProvider implements JWKSource<SecurityContext> {
+    private static final long TICK_MILLIS = 1000;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+
+    @Value("${secure.jwk.refresh-interval-seconds:300}")
+    private long refreshIntervalSeconds;
+
+    @Value("${secure.jwk.retry-interval-seconds:5}")
+    private long retryIntervalSeconds;
+
+    @Value("${secure.jwk.min-on-demand-interval-seconds:30}")
+    private long minOnDemandIntervalSeconds;
+
+    @Value("${secure.jwk.timeout-millis:2000}")
+    private int timeoutMillis;
+
+    private volatile List<JWK> keys = Collections.emptyList();
+    private volatile boolean refreshRequested;
+    private long nextRefreshTime;
+    private long lastFetchTime;
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        lastFetchTime = System.currentTimeMillis();
+        nextRefreshTime = lastFetchTime + TimeUnit.SECONDS.toMillis(fetch() ? refreshIntervalSeconds : retryIntervalSeconds);
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jwk-set-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        List<JWK> selected = jwkSelector.select(new JWKSet(keys));
+        if (selected.isEmpty()) {
+            refreshRequested = true;
+        }
+        return selected;
+    }
+
+    /**
+     * 只在刷新线程上执行
+     */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        boolean onDemand = refreshRequested && now - lastFetchTime >= TimeUnit.SECONDS.toMillis(minOnDemandIntervalSeconds);
+        if (now < nextRefreshTime && !onDemand) {
+            return;
+        }
+        refreshRequested = false;
+        lastFetchTime = now;
+        nextRefreshTime = now + TimeUnit.SECONDS.toMillis(fetch() ? refreshIntervalSeconds : retryIntervalSeconds);
+    }
+
+    /**
+     * 拉取公钥，只保留RSA和EC公钥部分；失败或结果为空时保留旧的公钥
+     * 认证服务轮换密钥期间会同时返回新旧多个公钥，按kid区分
+     *
+     * @return 是否成功
+     */
+    private boolean fetch() {
+        try (HttpResponse response = HttpRequest.get(jwkSetUri).timeout(timeoutMillis).execute()) {
+            if (!response.isOk()) {
+                log.warn("拉取验签公钥失败，status: {}，继续使用已有的{}个公钥", response.getStatus(), keys.size());
+                return false;
+            }
+            List<JWK> fetched = new ArrayList<>();
+            for (JWK jwk : JWKSet.parse(response.body()).toPublicJWKSet().getKeys()) {
+                if (KeyType.RSA.equals(jwk.getKeyType()) || KeyType.EC.equals(jwk.getKeyType())) {
+                    fetched.add(jwk);
+                }
+            }
+            if (fetched.isEmpty()) {
+                log.warn("认证服务返回的公钥为空，继续使用已有的{}个公钥", keys.size());
+                return false;
+            }
+            keys = Collections.unmodifiableList(fetched);
+            log.debug("验签公钥已刷新，共{}个", fetched.size());
+            return true;
+        } catch (Exception e) {
+            log.warn("拉取验签公钥失败，继续使用已有的{}个公钥", keys.size(), e);
+            return false;
+        }
+    }
+}
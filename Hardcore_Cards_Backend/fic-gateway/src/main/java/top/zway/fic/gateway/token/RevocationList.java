@@ -0,0 +1,164 @@
+package top.zway.fic.gateway.token;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import top.zway.fic.base.constant.AuthConstant;
+import top.zway.fic.base.constant.RedisConstant;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已撤销token的本地布隆过滤器，绝大多数未撤销的token不访问Redis
+ * 条目为t:{jti}和u:{用户id}，与认证服务发布的通知格式一致
+ * 启动时从Redis全量构建，收到撤销通知后加入；定时全量重建，兜底丢失的通知并清掉已过期的记录
+ * 只有命中过滤器的token才查询Redis确认，Redis不可用时按已撤销处理
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RevocationList {
+    /**
+     * exp精确到秒，由exp推算的签发时间最多比实际早1秒，与认证服务一致
+     */
+    private static final long ISSUED_AT_PRECISION_MILLIS = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Value("${secure.revocation.expected-entries:100000}")
+    private long expectedEntries;
+
+    @Value("${secure.revocation.fpp:0.001}")
+    private double fpp;
+
+    @Value("${secure.revocation.rebuild-interval-seconds:300}")
+    private long rebuildIntervalSeconds;
+
+    private volatile BloomFilter filter;
+
+    /**
+     * 正在重建的过滤器，重建期间收到的通知同时加入，替换后不会丢失
+     */
+    private volatile BloomFilter building;
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        filter = new BloomFilter(expectedEntries, fpp);
+        rebuild();
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "revocation-list-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::rebuild, rebuildIntervalSeconds, rebuildIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 收到撤销通知时调用
+     *
+     * @param entry t:{jti}或u:{用户id}
+     */
+    public void add(String entry) {
+        BloomFilter next = building;
+        if (next != null) {
+            next.add(entry);
+        }
+        filter.add(entry);
+    }
+
+    /**
+     * 判断token是否已撤销，未命中过滤器时直接返回false
+     *
+     * @param verifiedToken 已验签的access token
+     * @return 是否已撤销；Redis出错时为true
+     */
+    public Mono<Boolean> isRevoked(VerifiedToken verifiedToken) {
+        BloomFilter current = filter;
+        String jti = verifiedToken.getJwt().getId();
+        Long userId = verifiedToken.getUserId();
+        boolean tokenHit = jti != null && current.mightContain(RedisConstant.REVOKED_TOKEN_MESSAGE_PREFIX + jti);
+        boolean userHit = userId != null && current.mightContain(RedisConstant.REVOKED_USER_MESSAGE_PREFIX + userId);
+        if (!tokenHit && !userHit) {
+            return Mono.just(false);
+        }
+        Mono<Boolean> tokenRevoked = tokenHit
+                ? reactiveStringRedisTemplate.opsForZSet().score(RedisConstant.REVOKED_TOKENS, jti)
+                .map(expiresAt -> expiresAt > System.currentTimeMillis())
+                .defaultIfEmpty(false)
+                : Mono.just(false);
+        Mono<Boolean> userRevoked = userHit
+                ? reactiveStringRedisTemplate.opsForZSet().score(RedisConstant.REVOKED_USERS, userId.toString())
+                .map(revokedAt -> issuedAt(verifiedToken) + ISSUED_AT_PRECISION_MILLIS <= revokedAt)
+                .defaultIfEmpty(false)
+                : Mono.just(false);
+        return tokenRevoked.flatMap(revoked -> revoked ? Mono.just(true) : userRevoked)
+                .onErrorResume(e -> {
+                    log.warn("查询token撤销记录失败，按已撤销处理", e);
+                    return Mono.just(true);
+                });
+    }
+
+    /**
+     * 从Redis全量重建，失败时保留旧的过滤器
+     * 网关只校验access token，用户撤销记录只需保留access token有效期内的；更早的记录由认证服务按refresh token有效期清理
+     */
+    public void rebuild() {
+        BloomFilter next = new BloomFilter(expectedEntries, fpp);
+        building = next;
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> jtis = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(RedisConstant.REVOKED_TOKENS, now, Double.POSITIVE_INFINITY);
+            Set<String> userIds = stringRedisTemplate.opsForZSet().rangeByScore(RedisConstant.REVOKED_USERS,
+                    now - TimeUnit.SECONDS.toMillis(AuthConstant.ACCESS_TOKEN_VALIDITY_SECONDS), Double.POSITIVE_INFINITY);
+            int size = 0;
+            if (jtis != null) {
+                for (String jti : jtis) {
+                    next.add(RedisConstant.REVOKED_TOKEN_MESSAGE_PREFIX + jti);
+                }
+                size += jtis.size();
+            }
+            if (userIds != null) {
+                for (String userId : userIds) {
+                    next.add(RedisConstant.REVOKED_USER_MESSAGE_PREFIX + userId);
+                }
+                size += userIds.size();
+            }
+            filter = next;
+            if (size > expectedEntries) {
+                log.warn("已撤销token记录{}条，超过预期的{}条，误判率会升高", size, expectedEntries);
+            }
+            log.debug("token撤销过滤器已重建，共{}条", size);
+        } catch (Exception e) {
+            log.error("重建token撤销过滤器失败，继续使用旧数据", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * token中没有iat，由过期时间和access token有效期推算
+     */
+    private static long issuedAt(VerifiedToken verifiedToken) {
+        Instant expiresAt = verifiedToken.getJwt().getExpiresAt();
+        return expiresAt.toEpochMilli() - TimeUnit.SECONDS.toMillis(AuthConstant.ACCESS_TOKEN_VALIDITY_SECONDS);
+    }
+}
@@ -0,0 +1,134 @@
+package top.zway.fic.gateway.token;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.SecureUtil;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * token验签，同一token在过期前只做一次验签
+ * 过滤器验签后把结果放在exchange属性中，spring security的解码器和下游过滤器都从缓存或属性中取
+ * 公钥取自{@link JwkSetProvider}的本地副本，验签不会阻塞在http请求上
+ * 支持ES256和RS256，按token头部的alg和kid选择公钥，认证服务轮换密钥期间新旧token都能通过
+ * 验签结果可以缓存，撤销检查不缓存，每次经{@link RevocationList}判断
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenVerifier {
+    /**
+     * 当前请求已验签的token
+     */
+    public static final String VERIFIED_TOKEN_ATTR = TokenVerifier.class.getName() + ".verified";
+
+    private final JwkSetProvider jwkSetProvider;
+    private final RevocationList revocationList;
+
+    @Value("${secure.token-cache.capacity:10000}")
+    private int capacity;
+
+    private ReactiveJwtDecoder delegate;
+
+    /**
+     * key为token的sha256，按token剩余有效期过期
+     */
+    private LRUCache<String, VerifiedToken> verifiedCache;
+
+    @PostConstruct
+    public void init() {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        Map<JWSAlgorithm, JWSKeySelector<SecurityContext>> keySelectors = new HashMap<>(4);
+        keySelectors.put(JWSAlgorithm.ES256, new JWSVerificationKeySelector<>(JWSAlgorithm.ES256, jwkSetProvider));
+        keySelectors.put(JWSAlgorithm.RS256, new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSetProvider));
+        // 其他算法没有可用的公钥，验签失败
+        jwtProcessor.setJWSKeySelector((header, context) -> {
+            JWSKeySelector<SecurityContext> keySelector = keySelectors.get(header.getAlgorithm());
+            return keySelector == null ? Collections.emptyList() : keySelector.selectJWSKeys(header, context);
+        });
+        // 过期等声明由spring security的校验器检查
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        delegate = new NimbusReactiveJwtDecoder(jwt -> Mono.fromCallable(() -> jwtProcessor.process(jwt, null)));
+        verifiedCache = CacheUtil.newLRUCache(capacity);
+    }
+
+    /**
+     * 验签并检查是否已撤销，命中缓存时不再验签
+     *
+     * @param token 不带Bearer前缀的token
+     * @return 验签结果，token无效、过期或已撤销时为error
+     */
+    public Mono<VerifiedToken> verify(String token) {
+        return verifySignature(token).flatMap(verifiedToken -> revocationList.isRevoked(verifiedToken)
+                .flatMap(revoked -> revoked ? Mono.<VerifiedToken>error(new JwtException("token已撤销")) : Mono.just(verifiedToken)));
+    }
+
+    private Mono<VerifiedToken> verifySignature(String token) {
+        String key = SecureUtil.sha256(token);
+        // 不刷新访问时间，否则条目会被续期
+        VerifiedToken cached = verifiedCache.get(key, false);
+        if (cached != null && isNotExpired(cached.getJwt())) {
+            return Mono.just(cached);
+        }
+        return delegate.decode(token).map(jwt -> {
+            if (!isNotExpired(jwt)) {
+                throw new JwtException("token已过期");
+            }
+            VerifiedToken verifiedToken = new VerifiedToken(jwt, decodePayload(token));
+            long ttl = jwt.getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+            verifiedCache.put(key, verifiedToken, ttl);
+            return verifiedToken;
+        });
+    }
+
+    /**
+     * 供spring security使用，过滤器已验签时直接命中缓存
+     * 不再检查撤销：IgnoreUrlsRemoveJwtFilter在spring security之前已调用verify，已撤销的token已被移除
+     */
+    public Mono<Jwt> decode(String token) {
+        return verifySignature(token).map(VerifiedToken::getJwt);
+    }
+
+    /**
+     * 获取当前请求已验签的token
+     *
+     * @return 未携带或无效时为null
+     */
+    public static VerifiedToken getVerifiedToken(ServerWebExchange exchange) {
+        return exchange.getAttribute(VERIFIED_TOKEN_ATTR);
+    }
+
+    private static boolean isNotExpired(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * 签名已验证，payload直接base64url解码即可
+     */
+    private static String decodePayload(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        return new String(Base64.getUrlDecoder().decode(token.substring(start + 1, end)), StandardCharsets.UTF_8);
+    }
+}
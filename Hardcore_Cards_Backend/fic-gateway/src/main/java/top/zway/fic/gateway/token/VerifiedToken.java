@@ -0,0 +1,26 @@
+package top.zway.fic.gateway.token;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * 已验签的token，整个请求共用，不再重复解析
+ */
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+    private final Jwt jwt;
+    /**
+     * 原始payload的json，原样传给下游服务
+     */
+    private final String payload;
+
+    /**
+     * 用户id，即token中的id声明
+     */
+    public Long getUserId() {
+        Object id = jwt.getClaims().get("id");
+        return id instanceof Number ? ((Number) id).longValue() : null;
+    }
+}
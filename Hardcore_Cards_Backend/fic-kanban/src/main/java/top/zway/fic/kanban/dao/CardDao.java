@@ -30,6 +30,13 @@ public interface CardDao {
      */
     Long getKanbanIdByCardId(@Param("cardId") Long cardId);
 
+    /**
+     * 根据卡片id查询卡片
+     * @param cardId 卡片id
+     * @return 卡片 可能为null
+     */
+    CardDO selectByCardId(@Param("cardId") Long cardId);
+
     /**
      * 删除
      * @param cardId 卡片id
@@ -0,0 +1,31 @@
+package top.zway.fic.kanban.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import top.zway.fic.base.entity.DO.SearchOutboxDO;
+
+import java.util.List;
+
+@Mapper
+public interface SearchOutboxDao {
+    /**
+     * 写入发件箱
+     * @param record 事件
+     * @return 数量
+     */
+    int insert(SearchOutboxDO record);
+
+    /**
+     * 按id顺序取最早的一批
+     * @param limit 条数
+     * @return 事件
+     */
+    List<SearchOutboxDO> listOldest(@Param("limit") int limit);
+
+    /**
+     * 删除已转发的事件
+     * @param idList id
+     * @return 数量
+     */
+    int deleteByIdList(@Param("idList") List<Long> idList);
+}
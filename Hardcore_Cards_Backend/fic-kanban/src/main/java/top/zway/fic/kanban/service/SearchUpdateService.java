@@ -3,5 +3,9 @@ package top.zway.fic.kanban.service;
 import top.zway.fic.base.entity.BO.SearchUpdateBO;
 
 public interface SearchUpdateService {
+    /**
+     * 写入搜索更新发件箱，须在业务写入的同一事务中调用，提交后由转发线程发布
+     * @param searchUpdateBO 事件，应携带变更后的内容
+     */
     void update(SearchUpdateBO searchUpdateBO);
 }
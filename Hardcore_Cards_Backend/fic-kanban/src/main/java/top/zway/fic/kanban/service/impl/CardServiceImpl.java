@@ -30,6 +30,7 @@ public class CardServiceImpl implements CardService {
     private final SearchUpdateService searchUpdateService;
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean insertCard(CardAO cardAo) {
         // 列是否在此看板
         Long kanbanId = columnDao.getKanbanIdByColumnId(cardAo.getColumnId());
@@ -51,7 +52,8 @@ public class CardServiceImpl implements CardService {
         int insert = cardDao.insert(cardDO);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardDO.getCardId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardDO.getCardId(),
+                cardDO.getColumnId(), cardDO.getCardId(), cardDO.getContent()));
         return insert > 0;
     }
 
@@ -84,14 +86,19 @@ public class CardServiceImpl implements CardService {
         int delete = cardDao.delete(cardId);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardId));
+        searchUpdateService.update(SearchUpdateBO.delete(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardId));
         return delete > 0;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean updateColumn(CardAO cardAo) {
-        // 鉴权
-        Long kanbanId = isNoAuthorityByCardId(cardAo.getCardId(), cardAo.getUpdateUser());
+        // 鉴权，同时取出所属列用于搜索更新
+        CardDO cardDO = cardDao.selectByCardId(cardAo.getCardId());
+        if (cardDO == null) {
+            return false;
+        }
+        Long kanbanId = isNoAuthorityByKanbanId(cardDO.getKanbanId(), cardAo.getUpdateUser());
         if (kanbanId == null) {
             return false;
         }
@@ -101,7 +108,8 @@ public class CardServiceImpl implements CardService {
         int updateBaseInfo = cardDao.updateBaseInfo(record);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardAo.getCardId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanId, SearchUpdateBO.UpdateTypeEnum.CARD, cardAo.getCardId(),
+                cardDO.getColumnId(), cardAo.getCardId(), cardAo.getContent()));
         return updateBaseInfo > 0;
     }
 
@@ -129,9 +137,11 @@ public class CardServiceImpl implements CardService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean transferCard(Long cardId, Long columnId, Long userId) {
-        // 鉴权
-        Long kanbanIdByCardId = cardDao.getKanbanIdByCardId(cardId);
+        // 鉴权，同时取出内容用于搜索更新
+        CardDO cardDO = cardDao.selectByCardId(cardId);
+        Long kanbanIdByCardId = cardDO == null ? null : cardDO.getKanbanId();
         Long kanbanIdByColumnId = columnDao.getKanbanIdByColumnId(columnId);
         if (kanbanIdByCardId == null || kanbanIdByColumnId == null ||
                 kanbanIdByCardId.longValue() != kanbanIdByColumnId.longValue()) {
@@ -147,7 +157,8 @@ public class CardServiceImpl implements CardService {
         int transferCard = cardDao.transferCard(cardId, lastOrder + 1, columnId);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanIdByCardId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanIdByCardId, SearchUpdateBO.UpdateTypeEnum.CARD, cardId));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanIdByCardId, SearchUpdateBO.UpdateTypeEnum.CARD, cardId,
+                columnId, cardId, cardDO.getContent()));
         return transferCard > 0;
     }
 }
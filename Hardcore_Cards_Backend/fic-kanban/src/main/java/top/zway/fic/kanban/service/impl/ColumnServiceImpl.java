@@ -40,6 +40,7 @@ public class ColumnServiceImpl implements ColumnService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean insertColumn(KanbanColumnAO kanbanColumnAo) {
         // 校验权限
         if (isNoAuthorityByKanbanId(kanbanColumnAo.getKanbanId(), kanbanColumnAo.getUpdateUser()) == null) {
@@ -57,8 +58,8 @@ public class ColumnServiceImpl implements ColumnService {
         int insert = columnDao.insert(kanbanColumnDO);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanColumnAo.getKanbanId());
-        searchUpdateService.update(new SearchUpdateBO(kanbanColumnAo.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.COLUMN,
-                kanbanColumnDO.getColumnId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanColumnAo.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.COLUMN,
+                kanbanColumnDO.getColumnId(), kanbanColumnDO.getColumnId(), null, kanbanColumnDO.getColumnTitle()));
         return insert > 0;
     }
 
@@ -81,11 +82,12 @@ public class ColumnServiceImpl implements ColumnService {
         int delete = columnDao.delete(columnId);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.COLUMN, columnId));
+        searchUpdateService.update(SearchUpdateBO.delete(kanbanId, SearchUpdateBO.UpdateTypeEnum.COLUMN, columnId));
         return delete > 0;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean updateColumn(KanbanColumnAO kanbanColumnAo) {
         // 校验权限
         Long kanbanId = isNoAuthorityByColumnId(kanbanColumnAo.getColumnId(), kanbanColumnAo.getUpdateUser());
@@ -97,7 +99,8 @@ public class ColumnServiceImpl implements ColumnService {
         int updateBaseInfo = columnDao.updateBaseInfo(kanbanColumnDO);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.COLUMN, kanbanColumnAo.getColumnId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanId, SearchUpdateBO.UpdateTypeEnum.COLUMN,
+                kanbanColumnAo.getColumnId(), kanbanColumnAo.getColumnId(), null, kanbanColumnAo.getColumnTitle()));
         return updateBaseInfo > 0;
     }
 
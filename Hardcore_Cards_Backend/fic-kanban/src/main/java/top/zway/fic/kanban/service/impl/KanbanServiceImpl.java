@@ -46,7 +46,8 @@ public class KanbanServiceImpl implements KanbanService {
         // 插入授权记录
         ShareKanbanDO record = new ShareKanbanDO(kanbanDO.getKanbanId(), kanbanDO.getOwnerId(), false, null);
         int insert = shareKanbanDao.insert(record);
-        searchUpdateService.update(new SearchUpdateBO(record.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.KANBAN, record.getKanbanId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(record.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.KANBAN,
+                record.getKanbanId(), null, null, kanbanDO.getTitle()));
         return insert > 0;
     }
 
@@ -71,11 +72,12 @@ public class KanbanServiceImpl implements KanbanService {
         shareKanbanDao.deleteByKanbanId(kanbanId);
         // 删除看板
         int delete = kanbanDao.deleteByPrimaryKey(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.KANBAN, kanbanId));
+        searchUpdateService.update(SearchUpdateBO.delete(kanbanId, SearchUpdateBO.UpdateTypeEnum.KANBAN, kanbanId));
         return delete > 0;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean updateKanban(KanbanAO kanbanAo) {
         // 鉴权
         KanbanDO role = kanbanDao.selectByPrimaryKey(kanbanAo.getKanbanId());
@@ -87,7 +89,8 @@ public class KanbanServiceImpl implements KanbanService {
                 null, kanbanAo.getColor(), null, null);
         int update = kanbanDao.updateBaseInfo(record);
         // 搜索更新
-        searchUpdateService.update(new SearchUpdateBO(kanbanAo.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.KANBAN, kanbanAo.getKanbanId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanAo.getKanbanId(), SearchUpdateBO.UpdateTypeEnum.KANBAN,
+                kanbanAo.getKanbanId(), null, null, kanbanAo.getTitle()));
         // 缓存刷新
         cacheService.doubleDelayedDeleteKanbanCache(kanbanAo.getKanbanId());
         return update > 0;
@@ -2,22 +2,168 @@ package top.zway.fic.kanban.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import top.zway.fic.base.constant.RedisConstant;
 import top.zway.fic.base.entity.BO.SearchUpdateBO;
+import top.zway.fic.base.entity.DO.SearchOutboxDO;
 import top.zway.fic.kanban.config.SearchUpdateRabbitMqConfig;
+import top.zway.fic.kanban.dao.SearchOutboxDao;
 import top.zway.fic.kanban.service.SearchUpdateService;
+import top.zway.fic.redis.util.RedisUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务发件箱：变更事件与业务数据同一事务落库，单线程按id顺序转发到mq，确认后删除
+ * 转发失败的事件留在表里下一轮重发，至少一次；重复投递由索引的外部版本去重
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SearchUpdateServiceImpl implements SearchUpdateService {
+    private final SearchOutboxDao searchOutboxDao;
     private final RabbitTemplate rabbitTemplate;
+    private final RedisUtils redisUtils;
+
+    @Value("${search.outbox.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${search.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${search.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 仍由本实例持有时续期
+     */
+    private static final RedisScript<Long> EXTEND_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('expire', KEYS[1], ARGV[2]) end " +
+                    "return 0", Long.class);
+
+    /**
+     * 仍由本实例持有时删除，不会删掉过期后被其他实例取得的锁
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) end " +
+                    "return 0", Long.class);
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
 
     @Override
-    @Async
+    @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Exception.class)
     public void update(SearchUpdateBO searchUpdateBO) {
-        rabbitTemplate.convertAndSend(SearchUpdateRabbitMqConfig.DATA_UPDATE_EXCHANGE_NAME, "", searchUpdateBO);
+        searchOutboxDao.insert(new SearchOutboxDO(null, searchUpdateBO.getKanbanId(),
+                searchUpdateBO.getUpdateType().name(), searchUpdateBO.getData(), searchUpdateBO.getColumnId(),
+                searchUpdateBO.getCardId(), searchUpdateBO.getContent(), searchUpdateBO.getDeleted(), null));
+    }
+
+    /**
+     * 多实例只有持锁的一个转发，保证同一数据的事件按写入顺序取得版本
+     * 积压较多时连续转发多批，每批开始前续期，锁已丢失时停止，不与其他实例同时转发
+     */
+    private void relay() {
+        if (!redisUtils.setIfAbsent(RedisConstant.SEARCH_OUTBOX_RELAY_LOCK, instanceId,
+                RedisConstant.SEARCH_OUTBOX_RELAY_LOCK_EXP_TIME)) {
+            return;
+        }
+        List<String> keys = Collections.singletonList(RedisConstant.SEARCH_OUTBOX_RELAY_LOCK);
+        try {
+            int relayed = relayBatch();
+            while (relayed >= batchSize) {
+                Long extended = redisUtils.execute(EXTEND_LOCK_SCRIPT, keys, instanceId,
+                        RedisConstant.SEARCH_OUTBOX_RELAY_LOCK_EXP_TIME);
+                if (extended == null || extended != 1) {
+                    log.warn("发件箱转发锁已丢失，停止本轮转发");
+                    return;
+                }
+                relayed = relayBatch();
+            }
+        } catch (Exception e) {
+            log.error("转发搜索更新事件失败，稍后重试", e);
+        } finally {
+            redisUtils.execute(RELEASE_LOCK_SCRIPT, keys, instanceId);
+        }
+    }
+
+    /**
+     * 取一批，同一数据只保留最后一次变更，按id顺序分配版本并发布，全部确认后删除整批
+     *
+     * @return 本批读取的条数
+     */
+    private int relayBatch() throws Exception {
+        List<SearchOutboxDO> batch = searchOutboxDao.listOldest(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<String, SearchOutboxDO> latest = new LinkedHashMap<>(batch.size() * 2);
+        List<Long> idList = new ArrayList<>(batch.size());
+        for (SearchOutboxDO searchOutboxDO : batch) {
+            String key = searchOutboxDO.getUpdateType() + ":" + searchOutboxDO.getData();
+            // 先移除再放入，保持最后一次变更的位置
+            latest.remove(key);
+            latest.put(key, searchOutboxDO);
+            idList.add(searchOutboxDO.getId());
+        }
+        long version = redisUtils.incr(RedisConstant.SEARCH_VERSION_SEQUENCE, latest.size()) - latest.size();
+        List<CorrelationData> confirmList = new ArrayList<>(latest.size());
+        for (SearchOutboxDO searchOutboxDO : latest.values()) {
+            CorrelationData correlationData = new CorrelationData(String.valueOf(searchOutboxDO.getId()));
+            rabbitTemplate.convertAndSend(SearchUpdateRabbitMqConfig.DATA_UPDATE_EXCHANGE_NAME, "",
+                    toSearchUpdateBO(searchOutboxDO, ++version), correlationData);
+            confirmList.add(correlationData);
+        }
+        for (CorrelationData correlationData : confirmList) {
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                throw new IllegalStateException("发件箱事件" + correlationData.getId() + "未被确认：" + confirm.getReason());
+            }
+        }
+        searchOutboxDao.deleteByIdList(idList);
+        log.debug("转发搜索更新事件{}条，合并后{}条", batch.size(), latest.size());
+        return batch.size();
+    }
+
+    private static SearchUpdateBO toSearchUpdateBO(SearchOutboxDO searchOutboxDO, long version) {
+        return new SearchUpdateBO(searchOutboxDO.getKanbanId(),
+                SearchUpdateBO.UpdateTypeEnum.valueOf(searchOutboxDO.getUpdateType()), searchOutboxDO.getData(),
+                searchOutboxDO.getColumnId(), searchOutboxDO.getCardId(), searchOutboxDO.getContent(),
+                searchOutboxDO.getDeleted(), version, searchOutboxDO.getCreateTime().getTime());
     }
 }
@@ -43,7 +43,8 @@ public class TagServiceImpl implements TagService {
         cardDao.updateTaggedState(tagAo.getCardId(), true);
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.TAG, tagDO.getTagId()));
+        searchUpdateService.update(SearchUpdateBO.upsert(kanbanId, SearchUpdateBO.UpdateTypeEnum.TAG, tagDO.getTagId(),
+                null, tagDO.getCardId(), tagDO.getContent()));
         return insert > 0;
     }
 
@@ -72,7 +73,7 @@ public class TagServiceImpl implements TagService {
         }
         // 更新缓存
         cacheService.doubleDelayedDeleteKanbanCache(kanbanId);
-        searchUpdateService.update(new SearchUpdateBO(kanbanId, SearchUpdateBO.UpdateTypeEnum.TAG, tagId));
+        searchUpdateService.update(SearchUpdateBO.delete(kanbanId, SearchUpdateBO.UpdateTypeEnum.TAG, tagId));
         return delete > 0;
     }
 }
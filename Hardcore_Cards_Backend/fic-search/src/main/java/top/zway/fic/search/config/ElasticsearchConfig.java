@@ -6,6 +6,7 @@ import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +14,7 @@ import org.springframework.data.elasticsearch.config.AbstractElasticsearchConfig
 
 @EqualsAndHashCode(callSuper = true)
 @Configuration
+@ConditionalOnProperty(name = "search.engine", havingValue = "elasticsearch", matchIfMissing = true)
 @ConfigurationProperties("elasticsearch")
 @Data
 public class ElasticsearchConfig extends AbstractElasticsearchConfiguration {
@@ -0,0 +1,62 @@
+package top.zway.fic.search.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.RabbitMqConstants;
+import top.zway.fic.base.entity.BO.SearchUpdateBO;
+import top.zway.fic.search.handler.PartialUpdateStrategyContext;
+
+import java.util.Collections;
+
+/**
+ * 迁移旧的部分更新队列
+ * 旧队列使用drop-head溢出策略，参数不同无法原地修改；新队列已声明并绑定后，
+ * 解除旧队列与部分更新交换机的绑定，消费完剩余消息后删除，不丢失迁移前已入队的更新
+ * 多个实例同时执行时各自取走不同的消息；旧队列不存在时直接跳过
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LegacyDataUpdateQueueMigrator {
+    private static final ParameterizedTypeReference<SearchUpdateBO> SEARCH_UPDATE_TYPE =
+            new ParameterizedTypeReference<SearchUpdateBO>() {
+            };
+
+    private final AmqpAdmin amqpAdmin;
+    private final RabbitTemplate rabbitTemplate;
+    private final PartialUpdateStrategyContext partialUpdateStrategyContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        String legacyQueue = RabbitMqConstants.LEGACY_DATA_UPDATE_QUEUE_NAME;
+        try {
+            if (amqpAdmin.getQueueProperties(legacyQueue) == null) {
+                return;
+            }
+            amqpAdmin.removeBinding(new Binding(legacyQueue, Binding.DestinationType.QUEUE,
+                    RabbitMqConstants.DATA_UPDATE_EXCHANGE_NAME, "", Collections.emptyMap()));
+            int drained = 0;
+            SearchUpdateBO searchUpdateBO;
+            while ((searchUpdateBO = rabbitTemplate.receiveAndConvert(legacyQueue, SEARCH_UPDATE_TYPE)) != null) {
+                try {
+                    partialUpdateStrategyContext.invoke(searchUpdateBO);
+                } catch (Exception e) {
+                    // 已从旧队列取出，失败的更新由看板的全量更新和对账修复
+                    log.warn("处理旧队列中的更新失败，看板：{}", searchUpdateBO.getKanbanId(), e);
+                }
+                drained++;
+            }
+            amqpAdmin.deleteQueue(legacyQueue);
+            log.info("旧的部分更新队列{}已删除，迁移时处理{}条", legacyQueue, drained);
+        } catch (Exception e) {
+            log.warn("迁移旧的部分更新队列失败，下次启动时重试", e);
+        }
+    }
+}
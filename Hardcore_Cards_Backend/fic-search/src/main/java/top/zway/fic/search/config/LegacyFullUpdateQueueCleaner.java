@@ -0,0 +1,33 @@
+package top.zway.fic.search.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.RabbitMqConstants;
+
+/**
+ * 删除旧版本全量更新的TTL队列和死信队列
+ * 旧的TTL队列仍绑定在部分更新交换机上，每条部分更新都会复制一份，过期后堆积在没有消费者的死信队列中
+ * 先删除TTL队列，解除与部分更新交换机的绑定，再删除死信队列和两个交换机；不存在时删除不报错
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LegacyFullUpdateQueueCleaner {
+    private final AmqpAdmin amqpAdmin;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void clean() {
+        try {
+            amqpAdmin.deleteQueue(RabbitMqConstants.LEGACY_FULL_UPDATE_TTL_QUEUE_NAME);
+            amqpAdmin.deleteQueue(RabbitMqConstants.LEGACY_FULL_UPDATE_DEAD_QUEUE_NAME);
+            amqpAdmin.deleteExchange(RabbitMqConstants.LEGACY_FULL_UPDATE_TTL_EXCHANGE_NAME);
+            amqpAdmin.deleteExchange(RabbitMqConstants.LEGACY_FULL_UPDATE_DEAD_EXCHANGE_NAME);
+        } catch (Exception e) {
+            log.warn("删除旧版本全量更新队列失败，下次启动时重试", e);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package top.zway.fic.search.controller;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import top.zway.fic.base.entity.BO.SearchUpdateBO;
+import top.zway.fic.base.entity.VO.ReconcileReportVO;
+import top.zway.fic.base.entity.VO.SearchPageVO;
 import top.zway.fic.base.entity.VO.SearchVO;
 import top.zway.fic.base.result.R;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.ReconcileService;
+import top.zway.fic.search.service.ReindexService;
 import top.zway.fic.search.service.SearchService;
 import top.zway.fic.web.holder.LoginUserHolder;
 
@@ -16,23 +21,64 @@ import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
-@Slf4j
 public class SearchController {
     private final LoginUserHolder loginUserHolder;
     private final SearchService searchService;
+    private final SearchMetrics searchMetrics;
+    /**
+     * 只有es实现支持在线重建索引
+     */
+    private final ObjectProvider<ReindexService> reindexServiceProvider;
+    private final ObjectProvider<ReconcileService> reconcileServiceProvider;
 
     @GetMapping("/search")
-    public R<List<SearchVO>> search(@RequestParam("key") String key) {
+    public R<SearchPageVO> search(@RequestParam("key") String key,
+                                  @RequestParam(value = "size", required = false) Integer size,
+                                  @RequestParam(value = "cursor", required = false) String cursor) {
         Long id = loginUserHolder.getCurrentUser().getId();
-        List<SearchVO> search = searchService.search(key, id);
-        return R.success(search);
+        SearchPageVO search = searchMetrics.record(SearchMetrics.OPERATION_SEARCH,
+                () -> searchService.search(key, id, size, cursor));
+        return R.success(search, search.getSize());
+    }
+
+    @GetMapping("/search/suggest")
+    public R<List<SearchVO>> suggest(@RequestParam("prefix") String prefix,
+                                     @RequestParam(value = "size", required = false) Integer size) {
+        Long id = loginUserHolder.getCurrentUser().getId();
+        return R.success(searchMetrics.record(SearchMetrics.OPERATION_SUGGEST,
+                () -> searchService.suggest(prefix, id, size)));
     }
 
     @GetMapping("/rpc/full/update")
     public R fullUpdate(Long kanbanId) {
-        long start = System.currentTimeMillis();
-        searchService.fullUpdate(kanbanId);
-        log.info("全量更新{}耗时{}ms", kanbanId, System.currentTimeMillis() - start);
+        searchMetrics.record(SearchMetrics.OPERATION_FULL_UPDATE, () -> searchService.fullUpdate(kanbanId));
         return R.success();
     }
+
+    @GetMapping("/rpc/reindex")
+    public R reindex() {
+        ReindexService reindexService = reindexServiceProvider.getIfAvailable();
+        if (reindexService == null) {
+            return R.failed("当前搜索引擎不支持重建索引");
+        }
+        return R.judge(reindexService.reindex(), "已有重建索引任务在执行");
+    }
+
+    @GetMapping("/rpc/reconcile")
+    public R reconcile() {
+        ReconcileService reconcileService = reconcileServiceProvider.getIfAvailable();
+        if (reconcileService == null) {
+            return R.failed("当前搜索引擎不支持索引对账");
+        }
+        return R.judge(reconcileService.reconcile(), "已有对账任务在执行");
+    }
+
+    @GetMapping("/rpc/reconcile/report")
+    public R<ReconcileReportVO> reconcileReport() {
+        ReconcileService reconcileService = reconcileServiceProvider.getIfAvailable();
+        if (reconcileService == null) {
+            return R.failed("当前搜索引擎不支持索引对账");
+        }
+        return R.success(reconcileService.getLastReport());
+    }
 }
@@ -4,6 +4,8 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import top.zway.fic.base.entity.DO.KanbanDO;
 
+import java.util.List;
+
 @Mapper
 public interface KanbanDao {
     /**
@@ -13,4 +15,18 @@ public interface KanbanDao {
      */
     KanbanDO selectByPrimaryKey(Long kanbanId);
 
+    /**
+     * 获取所有看板id
+     * @return 看板id
+     */
+    List<Long> listKanbanId();
+
+    /**
+     * 按id升序分批获取看板id
+     * @param lastKanbanId 上一批最后一个看板id，从头开始时为0
+     * @param limit 本批数量
+     * @return 看板id
+     */
+    List<Long> listKanbanIdAfter(@Param("lastKanbanId") Long lastKanbanId, @Param("limit") Integer limit);
+
 }
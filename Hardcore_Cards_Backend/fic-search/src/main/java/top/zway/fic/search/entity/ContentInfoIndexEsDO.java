@@ -7,14 +7,32 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
 import org.springframework.stereotype.Component;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "kanban_content")
+@Document(indexName = ContentInfoIndexEsDO.INDEX_NAME, type = ContentInfoIndexEsDO.TYPE_NAME)
+@Setting(settingPath = ContentInfoIndexEsDO.SETTING_PATH)
+@Mapping(mappingPath = ContentInfoIndexEsDO.MAPPING_PATH)
 @Component
 public class ContentInfoIndexEsDO {
+    /**
+     * 读写使用的别名，实际索引为 kanban_content_v{版本}，重建索引时原子切换
+     */
+    public static final String INDEX_NAME = "kanban_content";
+    public static final String TYPE_NAME = "contentinfoindexesdo";
+    public static final String SETTING_PATH = "/es/kanban-content-settings.json";
+    public static final String MAPPING_PATH = "/es/kanban-content-mapping.json";
+    /**
+     * content的edge-ngram子字段，用于输入联想
+     */
+    public static final String PREFIX_SUFFIX = "prefix";
+
     @Id
     private String id;
     @Field(type = FieldType.Long)
@@ -25,6 +43,8 @@ public class ContentInfoIndexEsDO {
     private Long cardId;
     @Field(type = FieldType.Long)
     private Long tagId;
-    @Field(type = FieldType.Text, analyzer = "ik_max_word")
+    @MultiField(mainField = @Field(type = FieldType.Text, analyzer = "ik_max_word"),
+            otherFields = @InnerField(suffix = PREFIX_SUFFIX, type = FieldType.Text, analyzer = "autocomplete",
+                    searchAnalyzer = "autocomplete_search"))
     private String content;
 }
@@ -6,31 +6,53 @@ import top.zway.fic.base.entity.BO.SearchUpdateBO;
 import top.zway.fic.base.entity.DO.CardDO;
 import top.zway.fic.redis.util.RedisUtils;
 import top.zway.fic.search.dao.CardDao;
-import top.zway.fic.search.dao.ContentInfoIndexEsDao;
 import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.service.ContentIndexService;
 
 @Service
 @RequiredArgsConstructor
 public class CardPartialUpdateHandler implements PartialUpdateStrategyContext.IPartialUpdateStrategy {
     private final CardDao cardDao;
-    private final ContentInfoIndexEsDao contentInfoIndexEsDao;
+    private final ContentIndexService contentIndexService;
 
     public static final String ID_PREFIX = "card_";
 
     @Override
     public void handlePartialUpdate(SearchUpdateBO searchUpdateBO) {
+        if (searchUpdateBO.carryPayload()) {
+            // 直接使用事件中的内容和版本
+            if (searchUpdateBO.getDeleted()) {
+                contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), searchUpdateBO.getVersion());
+            } else {
+                ContentInfoIndexEsDO contentInfoIndexEsDO = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
+                        searchUpdateBO.getKanbanId(), searchUpdateBO.getColumnId(), searchUpdateBO.getData(), null, searchUpdateBO.getContent());
+                contentIndexService.save(contentInfoIndexEsDO, searchUpdateBO.getVersion());
+            }
+            return;
+        }
+        // 兼容旧格式事件，先取版本再回查数据库
+        long version = contentIndexService.nextVersion();
         CardDO cardDO = cardDao.selectByCardId(searchUpdateBO.getData());
         if (cardDO == null) {
             // 删除es
-            contentInfoIndexEsDao.deleteById(ID_PREFIX + searchUpdateBO.getData());
+            contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), version);
         } else {
             // 更新es
-            ContentInfoIndexEsDO e = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(), cardDO.getKanbanId(),
-                    cardDO.getColumnId(), searchUpdateBO.getData(), null, cardDO.getContent());
-            contentInfoIndexEsDao.save(e);
+            contentIndexService.save(buildIndexDO(cardDO), version);
         }
     }
 
+    /**
+     * 构建索引文档
+     *
+     * @param cardDO 数据库记录
+     * @return 索引文档
+     */
+    public ContentInfoIndexEsDO buildIndexDO(CardDO cardDO) {
+        return new ContentInfoIndexEsDO(ID_PREFIX + cardDO.getCardId(), cardDO.getKanbanId(),
+                cardDO.getColumnId(), cardDO.getCardId(), null, cardDO.getContent());
+    }
+
     @Override
     public SearchUpdateBO.UpdateTypeEnum getType() {
         return SearchUpdateBO.UpdateTypeEnum.CARD;
@@ -6,31 +6,53 @@ import top.zway.fic.base.entity.BO.SearchUpdateBO;
 import top.zway.fic.base.entity.DO.KanbanColumnDO;
 import top.zway.fic.redis.util.RedisUtils;
 import top.zway.fic.search.dao.ColumnDao;
-import top.zway.fic.search.dao.ContentInfoIndexEsDao;
 import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.service.ContentIndexService;
 
 @Service
 @RequiredArgsConstructor
 public class ColumnPartialUpdateHandler implements PartialUpdateStrategyContext.IPartialUpdateStrategy {
     private final ColumnDao columnDao;
-    private final ContentInfoIndexEsDao contentInfoIndexEsDao;
+    private final ContentIndexService contentIndexService;
 
     public static final String ID_PREFIX = "column_";
 
     @Override
     public void handlePartialUpdate(SearchUpdateBO searchUpdateBO) {
+        if (searchUpdateBO.carryPayload()) {
+            // 直接使用事件中的内容和版本
+            if (searchUpdateBO.getDeleted()) {
+                contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), searchUpdateBO.getVersion());
+            } else {
+                ContentInfoIndexEsDO contentInfoIndexEsDO = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
+                        searchUpdateBO.getKanbanId(), searchUpdateBO.getData(), null, null, searchUpdateBO.getContent());
+                contentIndexService.save(contentInfoIndexEsDO, searchUpdateBO.getVersion());
+            }
+            return;
+        }
+        // 兼容旧格式事件，先取版本再回查数据库
+        long version = contentIndexService.nextVersion();
         KanbanColumnDO kanbanColumnDO = columnDao.selectByPrimaryKey(searchUpdateBO.getData());
         if (kanbanColumnDO == null) {
             // 删除es
-            contentInfoIndexEsDao.deleteById(ID_PREFIX + searchUpdateBO.getData());
+            contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), version);
         } else {
             // 更新es
-            ContentInfoIndexEsDO e = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(), kanbanColumnDO.getKanbanId(),
-                    searchUpdateBO.getData(), null, null, kanbanColumnDO.getColumnTitle());
-            contentInfoIndexEsDao.save(e);
+            contentIndexService.save(buildIndexDO(kanbanColumnDO), version);
         }
     }
 
+    /**
+     * 构建索引文档
+     *
+     * @param kanbanColumnDO 数据库记录
+     * @return 索引文档
+     */
+    public ContentInfoIndexEsDO buildIndexDO(KanbanColumnDO kanbanColumnDO) {
+        return new ContentInfoIndexEsDO(ID_PREFIX + kanbanColumnDO.getColumnId(), kanbanColumnDO.getKanbanId(),
+                kanbanColumnDO.getColumnId(), null, null, kanbanColumnDO.getColumnTitle());
+    }
+
     @Override
     public SearchUpdateBO.UpdateTypeEnum getType() {
         return SearchUpdateBO.UpdateTypeEnum.COLUMN;
@@ -0,0 +1,55 @@
+package top.zway.fic.search.handler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.entity.DO.CardDO;
+import top.zway.fic.base.entity.DO.KanbanColumnDO;
+import top.zway.fic.base.entity.DO.KanbanDO;
+import top.zway.fic.base.entity.DO.TagDO;
+import top.zway.fic.search.dao.CardDao;
+import top.zway.fic.search.dao.ColumnDao;
+import top.zway.fic.search.dao.KanbanDao;
+import top.zway.fic.search.dao.TagDao;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class KanbanIndexDocBuilder {
+    private final KanbanDao kanbanDao;
+    private final ColumnDao columnDao;
+    private final CardDao cardDao;
+    private final TagDao tagDao;
+    private final KanbanPartialUpdateHandler kanbanPartialUpdateHandler;
+    private final ColumnPartialUpdateHandler columnPartialUpdateHandler;
+    private final CardPartialUpdateHandler cardPartialUpdateHandler;
+    private final TagPartialUpdateHandler tagPartialUpdateHandler;
+
+    /**
+     * 每张表按看板查一次，构建整个看板的索引文档
+     *
+     * @param kanbanId 看板
+     * @return 索引文档，看板不存在时为空
+     */
+    public List<ContentInfoIndexEsDO> build(Long kanbanId) {
+        KanbanDO kanbanDO = kanbanDao.selectByPrimaryKey(kanbanId);
+        if (kanbanDO == null) {
+            return Collections.emptyList();
+        }
+        List<ContentInfoIndexEsDO> docs = new ArrayList<>();
+        docs.add(kanbanPartialUpdateHandler.buildIndexDO(kanbanDO));
+        for (KanbanColumnDO kanbanColumnDO : columnDao.selectByKanbanId(kanbanId)) {
+            docs.add(columnPartialUpdateHandler.buildIndexDO(kanbanColumnDO));
+        }
+        for (CardDO cardDO : cardDao.selectByKanbanId(kanbanId)) {
+            docs.add(cardPartialUpdateHandler.buildIndexDO(cardDO));
+        }
+        for (TagDO tagDO : tagDao.selectByKanbanId(kanbanId)) {
+            docs.add(tagPartialUpdateHandler.buildIndexDO(tagDO));
+        }
+        return docs;
+    }
+}
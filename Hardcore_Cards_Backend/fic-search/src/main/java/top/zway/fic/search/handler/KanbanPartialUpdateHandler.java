@@ -5,32 +5,54 @@ import org.springframework.stereotype.Service;
 import top.zway.fic.base.entity.BO.SearchUpdateBO;
 import top.zway.fic.base.entity.DO.KanbanDO;
 import top.zway.fic.redis.util.RedisUtils;
-import top.zway.fic.search.dao.ContentInfoIndexEsDao;
 import top.zway.fic.search.dao.KanbanDao;
 import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.service.ContentIndexService;
 
 @Service
 @RequiredArgsConstructor
 public class KanbanPartialUpdateHandler implements PartialUpdateStrategyContext.IPartialUpdateStrategy {
     private final KanbanDao kanbanDao;
-    private final ContentInfoIndexEsDao contentInfoIndexEsDao;
+    private final ContentIndexService contentIndexService;
 
     public static final String ID_PREFIX = "kanban_";
 
     @Override
     public void handlePartialUpdate(SearchUpdateBO searchUpdateBO) {
+        if (searchUpdateBO.carryPayload()) {
+            // 直接使用事件中的内容和版本
+            if (searchUpdateBO.getDeleted()) {
+                contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), searchUpdateBO.getVersion());
+            } else {
+                ContentInfoIndexEsDO contentInfoIndexEsDO = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
+                        searchUpdateBO.getKanbanId(), null, null, null, searchUpdateBO.getContent());
+                contentIndexService.save(contentInfoIndexEsDO, searchUpdateBO.getVersion());
+            }
+            return;
+        }
+        // 兼容旧格式事件，先取版本再回查数据库
+        long version = contentIndexService.nextVersion();
         KanbanDO kanbanDO = kanbanDao.selectByPrimaryKey(searchUpdateBO.getData());
         if (kanbanDO == null) {
             // 删除es
-            contentInfoIndexEsDao.deleteById(ID_PREFIX + searchUpdateBO.getData());
+            contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), version);
         } else {
             // 更新es
-            ContentInfoIndexEsDO e = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
-                    searchUpdateBO.getData(), null, null, null, kanbanDO.getTitle());
-            contentInfoIndexEsDao.save(e);
+            contentIndexService.save(buildIndexDO(kanbanDO), version);
         }
     }
 
+    /**
+     * 构建索引文档
+     *
+     * @param kanbanDO 数据库记录
+     * @return 索引文档
+     */
+    public ContentInfoIndexEsDO buildIndexDO(KanbanDO kanbanDO) {
+        return new ContentInfoIndexEsDO(ID_PREFIX + kanbanDO.getKanbanId(),
+                kanbanDO.getKanbanId(), null, null, null, kanbanDO.getTitle());
+    }
+
     @Override
     public SearchUpdateBO.UpdateTypeEnum getType() {
         return SearchUpdateBO.UpdateTypeEnum.KANBAN;
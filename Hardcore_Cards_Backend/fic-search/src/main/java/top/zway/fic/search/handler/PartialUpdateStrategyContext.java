@@ -3,9 +3,10 @@ package top.zway.fic.search.handler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import top.zway.fic.base.constant.RedisConstant;
 import top.zway.fic.base.entity.BO.SearchUpdateBO;
-import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.FullUpdateScheduleService;
+import top.zway.fic.search.service.SearchCacheService;
 import top.zway.fic.web.exception.BizException;
 
 import javax.annotation.PostConstruct;
@@ -19,7 +20,9 @@ public class PartialUpdateStrategyContext {
     private Map<SearchUpdateBO.UpdateTypeEnum, IPartialUpdateStrategy> serviceMap;
 
     private final List<IPartialUpdateStrategy> iPartialUpdateStrategyList;
-    private final RedisUtils redisUtils;
+    private final FullUpdateScheduleService fullUpdateScheduleService;
+    private final SearchCacheService searchCacheService;
+    private final SearchMetrics searchMetrics;
 
     @PostConstruct
     private void init() {
@@ -34,9 +37,13 @@ public class PartialUpdateStrategyContext {
         if (iPartialUpdateStrategy == null) {
             throw new BizException("未找到对应处理类" + searchUpdateBO.getUpdateType());
         }
-        iPartialUpdateStrategy.handlePartialUpdate(searchUpdateBO);
-        redisUtils.set(RedisConstant.KANBAN_FULL_UPDATE_TIMER_PREFIX + searchUpdateBO.getKanbanId(), null,
-                RedisConstant.KANBAN_FULL_UPDATE_TIMER_EXP_TIME);
+        searchMetrics.record(SearchMetrics.OPERATION_PARTIAL_UPDATE,
+                () -> iPartialUpdateStrategy.handlePartialUpdate(searchUpdateBO));
+        searchMetrics.indexLag(searchUpdateBO);
+        // 使该看板相关的搜索缓存失效
+        searchCacheService.bumpGeneration(searchUpdateBO.getKanbanId());
+        // 推迟该看板的全量更新
+        fullUpdateScheduleService.schedule(searchUpdateBO.getKanbanId());
     }
 
     public interface IPartialUpdateStrategy {
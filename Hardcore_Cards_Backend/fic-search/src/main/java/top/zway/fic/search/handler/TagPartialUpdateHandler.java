@@ -7,33 +7,55 @@ import top.zway.fic.base.entity.DO.KanbanDO;
 import top.zway.fic.base.entity.DO.TagDO;
 import top.zway.fic.redis.util.RedisUtils;
 import top.zway.fic.search.dao.CardDao;
-import top.zway.fic.search.dao.ContentInfoIndexEsDao;
 import top.zway.fic.search.dao.KanbanDao;
 import top.zway.fic.search.dao.TagDao;
 import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.service.ContentIndexService;
 
 @Service
 @RequiredArgsConstructor
 public class TagPartialUpdateHandler implements PartialUpdateStrategyContext.IPartialUpdateStrategy {
     private final TagDao tagDao;
-    private final ContentInfoIndexEsDao contentInfoIndexEsDao;
+    private final ContentIndexService contentIndexService;
 
     public static final String ID_PREFIX = "tag_";
 
     @Override
     public void handlePartialUpdate(SearchUpdateBO searchUpdateBO) {
+        if (searchUpdateBO.carryPayload()) {
+            // 直接使用事件中的内容和版本
+            if (searchUpdateBO.getDeleted()) {
+                contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), searchUpdateBO.getVersion());
+            } else {
+                ContentInfoIndexEsDO contentInfoIndexEsDO = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
+                        searchUpdateBO.getKanbanId(), null, searchUpdateBO.getCardId(), searchUpdateBO.getData(), searchUpdateBO.getContent());
+                contentIndexService.save(contentInfoIndexEsDO, searchUpdateBO.getVersion());
+            }
+            return;
+        }
+        // 兼容旧格式事件，先取版本再回查数据库
+        long version = contentIndexService.nextVersion();
         TagDO tagDO = tagDao.selectByPrimaryKey(searchUpdateBO.getData());
         if (tagDO == null) {
             // 删除es
-            contentInfoIndexEsDao.deleteById(ID_PREFIX + searchUpdateBO.getData());
+            contentIndexService.deleteById(ID_PREFIX + searchUpdateBO.getData(), version);
         } else {
             // 更新es
-            ContentInfoIndexEsDO e = new ContentInfoIndexEsDO(ID_PREFIX + searchUpdateBO.getData(),
-                    tagDO.getKanbanId(), null, tagDO.getCardId(), tagDO.getTagId(), tagDO.getContent());
-            contentInfoIndexEsDao.save(e);
+            contentIndexService.save(buildIndexDO(tagDO), version);
         }
     }
 
+    /**
+     * 构建索引文档
+     *
+     * @param tagDO 数据库记录
+     * @return 索引文档
+     */
+    public ContentInfoIndexEsDO buildIndexDO(TagDO tagDO) {
+        return new ContentInfoIndexEsDO(ID_PREFIX + tagDO.getTagId(),
+                tagDO.getKanbanId(), null, tagDO.getCardId(), tagDO.getTagId(), tagDO.getContent());
+    }
+
     @Override
     public SearchUpdateBO.UpdateTypeEnum getType() {
         return SearchUpdateBO.UpdateTypeEnum.TAG;
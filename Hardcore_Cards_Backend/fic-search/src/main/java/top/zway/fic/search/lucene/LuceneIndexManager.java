@@ -0,0 +1,310 @@
+package top.zway.fic.search.lucene;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内嵌lucene索引，管理写入、近实时刷新和定时提交
+ * 索引只在本实例磁盘上，启动时取得集群唯一的实例锁，已有实例运行时启动失败
+ */
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+@RequiredArgsConstructor
+@Slf4j
+public class LuceneIndexManager {
+    public static final String ID_FIELD = "id";
+    public static final String KANBAN_ID_FIELD = "kanbanId";
+    public static final String COLUMN_ID_FIELD = "columnId";
+    public static final String CARD_ID_FIELD = "cardId";
+    public static final String TAG_ID_FIELD = "tagId";
+    public static final String CONTENT_FIELD = "content";
+    public static final String CONTENT_PREFIX_FIELD = CONTENT_FIELD + "." + ContentInfoIndexEsDO.PREFIX_SUFFIX;
+    public static final String VERSION_FIELD = "version";
+    /**
+     * 与es的autocomplete_tokenizer保持一致
+     */
+    public static final int MAX_PREFIX_GRAM = 20;
+    /**
+     * 联想词的分隔符，与PrefixAnalyzer和es的autocomplete_search_tokenizer一样按非字母数字切分
+     */
+    public static final String PREFIX_SEPARATOR = "[^\\p{L}\\p{Nd}]+";
+    /**
+     * 最近写入的版本，覆盖reader刷新前的窗口，也充当删除的墓碑
+     */
+    private static final int RECENT_VERSION_CAPACITY = 10000;
+    private static final long INSTANCE_LOCK_RENEW_SECONDS = 10;
+
+    /**
+     * 仍由本实例持有时续期
+     */
+    private static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('expire', KEYS[1], ARGV[2]) end " +
+                    "return 0", Long.class);
+
+    /**
+     * 仍由本实例持有时删除
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) end " +
+                    "return 0", Long.class);
+
+    private final RedisUtils redisUtils;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${search.lucene.path:./data/lucene}")
+    private String path;
+    @Value("${search.lucene.refresh-interval-ms:100}")
+    private long refreshIntervalMs;
+    @Value("${search.lucene.commit-interval-ms:5000}")
+    private long commitIntervalMs;
+
+    private Directory directory;
+    private Analyzer analyzer;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean uncommitted = new AtomicBoolean(false);
+    private final LRUCache<String, Long> recentVersions = CacheUtil.newLRUCache(RECENT_VERSION_CAPACITY);
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!redisUtils.setIfAbsent(RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK, instanceId,
+                RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK_EXP_TIME)) {
+            throw new IllegalStateException("search.engine=lucene只支持单实例运行，已有搜索实例持有"
+                    + RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK);
+        }
+        directory = new MMapDirectory(Paths.get(path));
+        analyzer = new PerFieldAnalyzerWrapper(new SmartChineseAnalyzer(),
+                Collections.singletonMap(CONTENT_PREFIX_FIELD, new PrefixAnalyzer()));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(directory, config);
+        // 从writer打开的reader能看到未提交的写入
+        searcherManager = new SearcherManager(indexWriter, null);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lucene-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::commit, commitIntervalMs, commitIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::renewInstanceLock, INSTANCE_LOCK_RENEW_SECONDS,
+                INSTANCE_LOCK_RENEW_SECONDS, TimeUnit.SECONDS);
+        log.info("lucene索引已打开：{}，文档数：{}", path, indexWriter.numDocs());
+    }
+
+    /**
+     * 写入文档，版本不大于已有版本时忽略，与es外部版本语义一致
+     */
+    public synchronized void update(ContentInfoIndexEsDO contentInfoIndexEsDO, long version) throws IOException {
+        String id = contentInfoIndexEsDO.getId();
+        if (version <= currentVersion(id)) {
+            return;
+        }
+        indexWriter.updateDocument(new Term(ID_FIELD, id), toDocument(contentInfoIndexEsDO, version));
+        recentVersions.put(id, version);
+        uncommitted.set(true);
+    }
+
+    public synchronized void updateAll(List<ContentInfoIndexEsDO> contentInfoIndexEsDOS, long version) throws IOException {
+        for (ContentInfoIndexEsDO contentInfoIndexEsDO : contentInfoIndexEsDOS) {
+            update(contentInfoIndexEsDO, version);
+        }
+    }
+
+    public synchronized void delete(String id, long version) throws IOException {
+        if (version <= currentVersion(id)) {
+            return;
+        }
+        indexWriter.deleteDocuments(new Term(ID_FIELD, id));
+        recentVersions.put(id, version);
+        uncommitted.set(true);
+    }
+
+    /**
+     * 先查最近写入，未命中再查索引中存储的版本
+     *
+     * @return 当前版本，文档不存在时为0
+     */
+    private long currentVersion(String id) throws IOException {
+        Long recent = recentVersions.get(id);
+        if (recent != null) {
+            return recent;
+        }
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(new TermQuery(new Term(ID_FIELD, id)), 1);
+            if (topDocs.scoreDocs.length == 0) {
+                return 0;
+            }
+            Long version = getLong(searcher.doc(topDocs.scoreDocs[0].doc), VERSION_FIELD);
+            return version == null ? 0 : version;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    public IndexSearcher acquire() throws IOException {
+        return searcherManager.acquire();
+    }
+
+    public void release(IndexSearcher indexSearcher) throws IOException {
+        searcherManager.release(indexSearcher);
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public static ContentInfoIndexEsDO toIndexDO(Document document) {
+        ContentInfoIndexEsDO contentInfoIndexEsDO = new ContentInfoIndexEsDO();
+        contentInfoIndexEsDO.setId(document.get(ID_FIELD));
+        contentInfoIndexEsDO.setKanbanId(getLong(document, KANBAN_ID_FIELD));
+        contentInfoIndexEsDO.setColumnId(getLong(document, COLUMN_ID_FIELD));
+        contentInfoIndexEsDO.setCardId(getLong(document, CARD_ID_FIELD));
+        contentInfoIndexEsDO.setTagId(getLong(document, TAG_ID_FIELD));
+        contentInfoIndexEsDO.setContent(document.get(CONTENT_FIELD));
+        return contentInfoIndexEsDO;
+    }
+
+    private static Document toDocument(ContentInfoIndexEsDO contentInfoIndexEsDO, long version) {
+        Document document = new Document();
+        document.add(new StringField(ID_FIELD, contentInfoIndexEsDO.getId(), Field.Store.YES));
+        // 排序和search_after用
+        document.add(new SortedDocValuesField(ID_FIELD, new BytesRef(contentInfoIndexEsDO.getId())));
+        document.add(new LongPoint(KANBAN_ID_FIELD, contentInfoIndexEsDO.getKanbanId()));
+        document.add(new StoredField(KANBAN_ID_FIELD, contentInfoIndexEsDO.getKanbanId()));
+        addStoredLong(document, COLUMN_ID_FIELD, contentInfoIndexEsDO.getColumnId());
+        addStoredLong(document, CARD_ID_FIELD, contentInfoIndexEsDO.getCardId());
+        addStoredLong(document, TAG_ID_FIELD, contentInfoIndexEsDO.getTagId());
+        String content = contentInfoIndexEsDO.getContent() == null ? "" : contentInfoIndexEsDO.getContent();
+        document.add(new TextField(CONTENT_FIELD, content, Field.Store.YES));
+        document.add(new TextField(CONTENT_PREFIX_FIELD, content, Field.Store.NO));
+        document.add(new StoredField(VERSION_FIELD, version));
+        return document;
+    }
+
+    private static void addStoredLong(Document document, String name, Long value) {
+        if (value != null) {
+            document.add(new StoredField(name, value));
+        }
+    }
+
+    private static Long getLong(Document document, String name) {
+        IndexableField field = document.getField(name);
+        return field == null ? null : field.numericValue().longValue();
+    }
+
+    private void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (Exception e) {
+            log.error("lucene刷新reader失败", e);
+        }
+    }
+
+    private void renewInstanceLock() {
+        try {
+            Long renewed = redisUtils.execute(RENEW_LOCK_SCRIPT,
+                    Collections.singletonList(RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK),
+                    instanceId, RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK_EXP_TIME);
+            if (renewed == null || renewed != 1) {
+                // 锁过期后被其他实例取得，两个实例的索引都会缺失修改
+                log.error("lucene实例锁已丢失，可能有其他搜索实例同时运行");
+            }
+        } catch (Exception e) {
+            log.error("lucene实例锁续期失败", e);
+        }
+    }
+
+    private void commit() {
+        if (!uncommitted.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            indexWriter.commit();
+        } catch (Exception e) {
+            uncommitted.set(true);
+            log.error("lucene提交失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(commitIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+        redisUtils.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(RedisConstant.SEARCH_LUCENE_INSTANCE_LOCK),
+                instanceId);
+    }
+
+    /**
+     * 与es的autocomplete分词器一致：字母数字的edge-ngram再转小写
+     */
+    private static class PrefixAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new EdgeNGramTokenizer(1, MAX_PREFIX_GRAM) {
+                @Override
+                protected boolean isTokenChar(int chr) {
+                    return Character.isLetterOrDigit(chr);
+                }
+            };
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package top.zway.fic.search.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.stereotype.Component;
+import top.zway.fic.base.constant.RabbitMqConstants;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.entity.BO.SearchUpdateBO;
+import top.zway.fic.redis.util.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 搜索服务的指标，通过actuator的metrics端点查看
+ * 延迟类指标发布p50/p95/p99，es往返次数按操作统计，用于调整消费并发和批量大小
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchMetrics {
+    public static final String OPERATION_SEARCH = "search";
+    public static final String OPERATION_SUGGEST = "suggest";
+    public static final String OPERATION_PARTIAL_UPDATE = "partial-update";
+    public static final String OPERATION_FULL_UPDATE = "full-update";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    /**
+     * 当前线程所在操作的es往返计数，不在操作内时为null
+     */
+    private static final ThreadLocal<int[]> ROUND_TRIPS = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final RedisUtils redisUtils;
+
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> roundTripSummaries = new ConcurrentHashMap<>();
+    private final Map<SearchUpdateBO.UpdateTypeEnum, Timer> lagTimers = new ConcurrentHashMap<>();
+    private DistributionSummary bulkSizeSummary;
+
+    @PostConstruct
+    public void init() {
+        bulkSizeSummary = DistributionSummary.builder("search.index.bulk.size")
+                .description("每个bulk请求的文档数")
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+        Gauge.builder("search.update.queue.depth", this::queueDepth)
+                .description("部分更新队列中待消费的消息数")
+                .register(meterRegistry);
+        Gauge.builder("search.full.update.pending", this::fullUpdatePending)
+                .description("等待去抖的全量更新看板数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次操作的耗时和其间的es往返次数
+     */
+    public <T> T record(String operation, Supplier<T> supplier) {
+        int[] previous = ROUND_TRIPS.get();
+        int[] roundTrips = new int[1];
+        ROUND_TRIPS.set(roundTrips);
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            operationTimers.computeIfAbsent(operation, this::buildOperationTimer)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            roundTripSummaries.computeIfAbsent(operation, this::buildRoundTripSummary).record(roundTrips[0]);
+            if (previous == null) {
+                ROUND_TRIPS.remove();
+            } else {
+                // 嵌套操作的往返也计入外层
+                previous[0] += roundTrips[0];
+                ROUND_TRIPS.set(previous);
+            }
+        }
+    }
+
+    public void record(String operation, Runnable runnable) {
+        record(operation, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 每次请求es后调用
+     */
+    public void esRoundTrip() {
+        int[] roundTrips = ROUND_TRIPS.get();
+        if (roundTrips != null) {
+            roundTrips[0]++;
+        }
+    }
+
+    public void bulkSize(int size) {
+        bulkSizeSummary.record(size);
+    }
+
+    /**
+     * 变更写入到索引完成的延迟，旧格式事件没有时间戳，不统计
+     */
+    public void indexLag(SearchUpdateBO searchUpdateBO) {
+        if (searchUpdateBO.getEventTime() == null) {
+            return;
+        }
+        long lag = Math.max(0, System.currentTimeMillis() - searchUpdateBO.getEventTime());
+        lagTimers.computeIfAbsent(searchUpdateBO.getUpdateType(), this::buildLagTimer).record(lag, TimeUnit.MILLISECONDS);
+    }
+
+    private Timer buildOperationTimer(String operation) {
+        return Timer.builder("search.operation.latency")
+                .description("搜索、联想和索引更新的耗时")
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary buildRoundTripSummary(String operation) {
+        return DistributionSummary.builder("search.es.round.trips")
+                .description("每次操作请求es的次数")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Timer buildLagTimer(SearchUpdateBO.UpdateTypeEnum updateType) {
+        return Timer.builder("search.index.lag")
+                .description("从变更写入数据库到写入索引的延迟")
+                .tag("type", updateType.name())
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 采集时才查询broker，失败返回NaN
+     */
+    private double queueDepth() {
+        try {
+            Properties properties = amqpAdmin.getQueueProperties(RabbitMqConstants.DATA_UPDATE_QUEUE_NAME);
+            Object count = properties == null ? null : properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+            return count instanceof Number ? ((Number) count).doubleValue() : Double.NaN;
+        } catch (Exception e) {
+            log.warn("获取更新队列深度失败", e);
+            return Double.NaN;
+        }
+    }
+
+    private double fullUpdatePending() {
+        try {
+            Long size = redisUtils.zZCard(RedisConstant.KANBAN_FULL_UPDATE_SCHEDULE);
+            return size == null ? 0 : size;
+        } catch (Exception e) {
+            log.warn("获取全量更新待处理数失败", e);
+            return Double.NaN;
+        }
+    }
+}
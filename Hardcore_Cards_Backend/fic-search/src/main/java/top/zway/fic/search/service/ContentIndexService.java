@@ -0,0 +1,45 @@
+package top.zway.fic.search.service;
+
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+
+import java.util.List;
+
+/**
+ * 索引写入，所有写入都带版本，版本不大于已有版本的写入被忽略
+ */
+public interface ContentIndexService {
+
+    /**
+     * 分配一个新版本，需在读取数据库之前调用，保证读到的数据不比版本旧
+     * @return 版本
+     */
+    long nextVersion();
+
+    /**
+     * 写入索引
+     * @param contentInfoIndexEsDO 文档
+     * @param version 版本
+     */
+    void save(ContentInfoIndexEsDO contentInfoIndexEsDO, long version);
+
+    /**
+     * 批量写入索引
+     * @param contentInfoIndexEsDOS 文档
+     * @param version 版本
+     */
+    void saveAll(List<ContentInfoIndexEsDO> contentInfoIndexEsDOS, long version);
+
+    /**
+     * 删除索引文档
+     * @param id 文档id
+     * @param version 版本
+     */
+    void deleteById(String id, long version);
+
+    /**
+     * 批量删除索引文档
+     * @param ids 文档id
+     * @param version 版本
+     */
+    void deleteAll(List<String> ids, long version);
+}
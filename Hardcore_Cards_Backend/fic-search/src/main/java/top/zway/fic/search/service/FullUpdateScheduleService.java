@@ -0,0 +1,10 @@
+package top.zway.fic.search.service;
+
+public interface FullUpdateScheduleService {
+
+    /**
+     * 推迟看板的全量更新，看板静默一段时间后只执行一次
+     * @param kanbanId 看板id
+     */
+    void schedule(Long kanbanId);
+}
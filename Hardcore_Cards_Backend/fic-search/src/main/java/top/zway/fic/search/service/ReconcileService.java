@@ -0,0 +1,18 @@
+package top.zway.fic.search.service;
+
+import top.zway.fic.base.entity.VO.ReconcileReportVO;
+
+public interface ReconcileService {
+
+    /**
+     * 后台对账：按看板流式比对MySQL与ES的文档校验和，只修复有差异的文档
+     * @return 是否成功发起，已有对账任务在执行时返回false
+     */
+    boolean reconcile();
+
+    /**
+     * 最近一次完成的对账结果
+     * @return 对账结果，本实例尚未完成过对账时为null
+     */
+    ReconcileReportVO getLastReport();
+}
@@ -0,0 +1,10 @@
+package top.zway.fic.search.service;
+
+public interface ReindexService {
+
+    /**
+     * 后台重建索引：构建新版本索引，期间部分更新双写，完成后原子切换别名
+     * @return 是否成功发起，已有重建任务在执行时返回false
+     */
+    boolean reindex();
+}
@@ -0,0 +1,39 @@
+package top.zway.fic.search.service;
+
+import top.zway.fic.base.entity.VO.SearchPageVO;
+
+import java.util.List;
+
+public interface SearchCacheService {
+
+    /**
+     * 生成搜索缓存key，包含相关看板当前的索引代数
+     * @param userId 用户
+     * @param key 关键词
+     * @param size 每页条数
+     * @param cursor 游标
+     * @param kanbanIds 用户有权限的看板
+     * @return 缓存key
+     */
+    String buildCacheKey(Long userId, String key, int size, String cursor, List<Long> kanbanIds);
+
+    /**
+     * 获取缓存的搜索结果
+     * @param cacheKey 缓存key
+     * @return 结果，未命中返回null
+     */
+    SearchPageVO get(String cacheKey);
+
+    /**
+     * 缓存搜索结果
+     * @param cacheKey 缓存key
+     * @param searchPageVO 结果
+     */
+    void put(String cacheKey, SearchPageVO searchPageVO);
+
+    /**
+     * 看板索引内容发生变化，递增代数使旧缓存失效，索引刷新后再递增一次
+     * @param kanbanId 看板
+     */
+    void bumpGeneration(Long kanbanId);
+}
@@ -1,5 +1,6 @@
 package top.zway.fic.search.service;
 
+import top.zway.fic.base.entity.VO.SearchPageVO;
 import top.zway.fic.base.entity.VO.SearchVO;
 
 import java.util.List;
@@ -7,11 +8,22 @@ import java.util.List;
 public interface SearchService {
     /**
      * 搜索
-     * @param userId 用户id
      * @param key 关键词
-     * @return 结果
+     * @param userId 用户id
+     * @param size 每页条数，为null时使用默认值
+     * @param cursor 上一页返回的游标，为null时查第一页
+     * @return 按看板分组的一页结果
+     */
+    SearchPageVO search(String key, Long userId, Integer size, String cursor);
+
+    /**
+     * 输入联想，按前缀匹配用户有权限的看板内容
+     * @param prefix 已输入的前缀
+     * @param userId 用户id
+     * @param size 条数，为null时使用默认值
+     * @return 联想结果
      */
-    List<SearchVO> search(String key, Long userId);
+    List<SearchVO> suggest(String prefix, Long userId, Integer size);
 
     void fullUpdate(Long kanbanId);
 }
@@ -0,0 +1,233 @@
+package top.zway.fic.search.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.web.exception.BizException;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ES索引写入，使用外部版本，重建索引期间同时写入新索引
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ContentIndexServiceImpl implements ContentIndexService {
+    private final RestHighLevelClient restHighLevelClient;
+    private final RedisUtils redisUtils;
+    private final SearchMetrics searchMetrics;
+
+    private static final int SEED_SCROLL_SIZE = 1000;
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(5);
+
+    /**
+     * 序列小于给定值时提高到该值，不会让序列回退
+     */
+    private static final RedisScript<Long> RAISE_SEQUENCE_SCRIPT = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('get', KEYS[1]) or '0') " +
+                    "local target = tonumber(ARGV[1]) " +
+                    "if current < target then redis.call('set', KEYS[1], target) return target end " +
+                    "return current", Long.class);
+
+    /**
+     * 监听器在单例初始化完成后才启动，序列初始化之前不会消费更新
+     * 取不到索引中的最大版本时启动失败，否则之后的修改会被当作旧版本丢弃
+     */
+    @PostConstruct
+    public void init() {
+        if (redisUtils.hasKey(RedisConstant.SEARCH_VERSION_SEEDED)) {
+            return;
+        }
+        long maxVersion;
+        try {
+            maxVersion = maxIndexedVersion();
+        } catch (IOException | ElasticsearchStatusException e) {
+            throw new IllegalStateException("读取索引最大版本失败，无法初始化版本序列", e);
+        }
+        Long sequence = redisUtils.execute(RAISE_SEQUENCE_SCRIPT,
+                Collections.singletonList(RedisConstant.SEARCH_VERSION_SEQUENCE), maxVersion);
+        redisUtils.set(RedisConstant.SEARCH_VERSION_SEEDED, maxVersion);
+        log.info("索引最大版本{}，版本序列从{}继续", maxVersion, sequence);
+    }
+
+    @Override
+    public long nextVersion() {
+        return redisUtils.incr(RedisConstant.SEARCH_VERSION_SEQUENCE, 1);
+    }
+
+    @Override
+    public void save(ContentInfoIndexEsDO contentInfoIndexEsDO, long version) {
+        saveAll(Collections.singletonList(contentInfoIndexEsDO), version);
+    }
+
+    @Override
+    public void saveAll(List<ContentInfoIndexEsDO> contentInfoIndexEsDOS, long version) {
+        if (contentInfoIndexEsDOS.isEmpty()) {
+            return;
+        }
+        List<DocWriteRequest<?>> requests = new ArrayList<>(contentInfoIndexEsDOS.size());
+        for (ContentInfoIndexEsDO contentInfoIndexEsDO : contentInfoIndexEsDOS) {
+            requests.add(new IndexRequest(ContentInfoIndexEsDO.INDEX_NAME, ContentInfoIndexEsDO.TYPE_NAME,
+                    contentInfoIndexEsDO.getId())
+                    .source(BeanUtil.beanToMap(contentInfoIndexEsDO, false, true))
+                    .versionType(VersionType.EXTERNAL)
+                    .version(version));
+        }
+        write(requests);
+    }
+
+    @Override
+    public void deleteById(String id, long version) {
+        deleteAll(Collections.singletonList(id), version);
+    }
+
+    @Override
+    public void deleteAll(List<String> ids, long version) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<DocWriteRequest<?>> requests = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            requests.add(new DeleteRequest(ContentInfoIndexEsDO.INDEX_NAME, ContentInfoIndexEsDO.TYPE_NAME, id)
+                    .versionType(VersionType.EXTERNAL)
+                    .version(version));
+        }
+        write(requests);
+    }
+
+    /**
+     * 写入别名对应的索引，失败时抛出异常由mq重试；双写新索引失败只记录日志
+     */
+    private void write(List<DocWriteRequest<?>> requests) {
+        try {
+            bulk(requests);
+        } catch (IOException | ElasticsearchStatusException e) {
+            log.error("写入索引失败", e);
+            throw new BizException("写入索引失败");
+        }
+        String target = getDualWriteTarget();
+        if (target == null) {
+            return;
+        }
+        for (DocWriteRequest<?> request : requests) {
+            request.index(target);
+        }
+        try {
+            bulk(requests);
+        } catch (IOException | ElasticsearchStatusException e) {
+            log.error("双写新索引{}失败", target, e);
+        }
+    }
+
+    /**
+     * 版本冲突说明索引里已有更新的数据，直接忽略
+     */
+    private void bulk(List<DocWriteRequest<?>> requests) throws IOException {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (DocWriteRequest<?> request : requests) {
+            bulkRequest.add(request);
+        }
+        BulkResponse bulkResponse = restHighLevelClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        searchMetrics.esRoundTrip();
+        searchMetrics.bulkSize(requests.size());
+        if (!bulkResponse.hasFailures()) {
+            return;
+        }
+        for (BulkItemResponse item : bulkResponse.getItems()) {
+            if (!item.isFailed()) {
+                continue;
+            }
+            if (item.status() == RestStatus.CONFLICT) {
+                log.debug("忽略旧版本写入，id：{}", item.getId());
+            } else {
+                throw new IOException("写入" + item.getIndex() + "失败：" + item.getFailureMessage());
+            }
+        }
+    }
+
+    /**
+     * _version不能排序和聚合，scroll全部文档取最大值；索引不存在时为0
+     */
+    private long maxIndexedVersion() throws IOException {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(QueryBuilders.matchAllQuery())
+                .size(SEED_SCROLL_SIZE)
+                .version(true)
+                .fetchSource(false);
+        SearchResponse response;
+        try {
+            response = restHighLevelClient.search(new SearchRequest(ContentInfoIndexEsDO.INDEX_NAME)
+                    .source(sourceBuilder).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT);
+        } catch (ElasticsearchStatusException e) {
+            if (e.status() == RestStatus.NOT_FOUND) {
+                return 0;
+            }
+            throw e;
+        }
+        String scrollId = response.getScrollId();
+        long maxVersion = 0;
+        try {
+            SearchHit[] hits = response.getHits().getHits();
+            while (hits.length > 0) {
+                for (SearchHit hit : hits) {
+                    maxVersion = Math.max(maxVersion, hit.getVersion());
+                }
+                response = restHighLevelClient.scroll(
+                        new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT);
+                scrollId = response.getScrollId();
+                hits = response.getHits().getHits();
+            }
+        } finally {
+            ClearScrollRequest request = new ClearScrollRequest();
+            request.addScrollId(scrollId);
+            try {
+                restHighLevelClient.clearScroll(request, RequestOptions.DEFAULT);
+            } catch (IOException e) {
+                log.warn("清除scroll失败", e);
+            }
+        }
+        return maxVersion;
+    }
+
+    /**
+     * 正在重建的索引由ReindexService记录在redis里，所有消费者实例都能看到
+     */
+    private String getDualWriteTarget() {
+        Object target = redisUtils.get(RedisConstant.SEARCH_REINDEX_TARGET);
+        return target instanceof String ? (String) target : null;
+    }
+}
@@ -0,0 +1,148 @@
+package top.zway.fic.search.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.FullUpdateScheduleService;
+import top.zway.fic.search.service.SearchService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于redis有序集合的全量更新去抖调度，所有实例共享同一个集合，到期的看板由认领成功的实例执行
+ * 部分更新只在本地记录看板，按刷新间隔把这段时间内修改过的看板一次写入有序集合，
+ * 到期时间最多晚一个刷新间隔；实例异常退出时未刷新的看板由对账兜底
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FullUpdateScheduleServiceImpl implements FullUpdateScheduleService {
+    private final RedisUtils redisUtils;
+    private final SearchService searchService;
+    private final SearchMetrics searchMetrics;
+
+    @Value("${search.full-update.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${search.full-update.batch-size:20}")
+    private int batchSize;
+
+    @Value("${search.full-update.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    @Value("${search.full-update.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    /**
+     * 上次刷新后有部分更新的看板
+     */
+    private final Set<Long> dirtyKanbanIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 只有分数仍已到期时才移除，认领期间被推迟的看板不会被误领
+     */
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('zscore', KEYS[1], ARGV[1]) " +
+                    "if score and tonumber(score) <= tonumber(ARGV[2]) then " +
+                    "redis.call('zrem', KEYS[1], ARGV[1]) return 1 end " +
+                    "return 0", Long.class);
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-full-update");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        executorService.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+        flush();
+    }
+
+    @Override
+    public void schedule(Long kanbanId) {
+        dirtyKanbanIds.add(kanbanId);
+    }
+
+    /**
+     * 取出本地记录的看板，一次ZADD推迟它们的到期时间；写入失败时放回，下次再写
+     */
+    private void flush() {
+        if (dirtyKanbanIds.isEmpty()) {
+            return;
+        }
+        Set<Long> kanbanIds = new HashSet<>();
+        for (Iterator<Long> iterator = dirtyKanbanIds.iterator(); iterator.hasNext(); ) {
+            kanbanIds.add(iterator.next());
+            iterator.remove();
+        }
+        double due = System.currentTimeMillis() + RedisConstant.KANBAN_FULL_UPDATE_QUIET_MILLISECOND;
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>((int) (kanbanIds.size() / 0.75) + 1);
+        for (Long kanbanId : kanbanIds) {
+            tuples.add(new DefaultTypedTuple<>(kanbanId, due));
+        }
+        try {
+            redisUtils.zAdd(RedisConstant.KANBAN_FULL_UPDATE_SCHEDULE, tuples);
+        } catch (Exception e) {
+            dirtyKanbanIds.addAll(kanbanIds);
+            log.error("写入全量更新调度失败，{}个看板稍后重试", kanbanIds.size(), e);
+        }
+    }
+
+    private void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<ZSetOperations.TypedTuple<Object>> dueSet = redisUtils.zRangeByScoreWithScores(
+                    RedisConstant.KANBAN_FULL_UPDATE_SCHEDULE, 0, now, 0, batchSize);
+            if (dueSet == null) {
+                return;
+            }
+            List<String> keys = Collections.singletonList(RedisConstant.KANBAN_FULL_UPDATE_SCHEDULE);
+            for (ZSetOperations.TypedTuple<Object> due : dueSet) {
+                Object member = due.getValue();
+                Long claimed = redisUtils.execute(CLAIM_SCRIPT, keys, member, now);
+                if (claimed != null && claimed == 1) {
+                    fullUpdate(((Number) member).longValue());
+                }
+            }
+        } catch (Exception e) {
+            log.error("全量更新调度失败", e);
+        }
+    }
+
+    private void fullUpdate(Long kanbanId) {
+        long start = System.currentTimeMillis();
+        try {
+            searchMetrics.record(SearchMetrics.OPERATION_FULL_UPDATE, () -> searchService.fullUpdate(kanbanId));
+            log.info("全量更新{}耗时{}ms", kanbanId, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("全量更新{}失败，稍后重试", kanbanId, e);
+            redisUtils.zAdd(RedisConstant.KANBAN_FULL_UPDATE_SCHEDULE, kanbanId, System.currentTimeMillis() + retryDelayMs);
+        }
+    }
+}
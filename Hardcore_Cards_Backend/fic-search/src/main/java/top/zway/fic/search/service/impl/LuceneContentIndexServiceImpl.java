@@ -0,0 +1,69 @@
+package top.zway.fic.search.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.lucene.LuceneIndexManager;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.web.exception.BizException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 内嵌lucene索引写入，提交由LuceneIndexManager定时批量完成
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+@RequiredArgsConstructor
+@Slf4j
+public class LuceneContentIndexServiceImpl implements ContentIndexService {
+    private final LuceneIndexManager luceneIndexManager;
+    private final RedisUtils redisUtils;
+
+    @Override
+    public long nextVersion() {
+        return redisUtils.incr(RedisConstant.SEARCH_VERSION_SEQUENCE, 1);
+    }
+
+    @Override
+    public void save(ContentInfoIndexEsDO contentInfoIndexEsDO, long version) {
+        try {
+            luceneIndexManager.update(contentInfoIndexEsDO, version);
+        } catch (IOException e) {
+            log.error("写入lucene索引失败，id：{}", contentInfoIndexEsDO.getId(), e);
+            throw new BizException("写入索引失败");
+        }
+    }
+
+    @Override
+    public void saveAll(List<ContentInfoIndexEsDO> contentInfoIndexEsDOS, long version) {
+        try {
+            luceneIndexManager.updateAll(contentInfoIndexEsDOS, version);
+        } catch (IOException e) {
+            log.error("批量写入lucene索引失败", e);
+            throw new BizException("写入索引失败");
+        }
+    }
+
+    @Override
+    public void deleteById(String id, long version) {
+        try {
+            luceneIndexManager.delete(id, version);
+        } catch (IOException e) {
+            log.error("删除lucene索引失败，id：{}", id, e);
+            throw new BizException("删除索引失败");
+        }
+    }
+
+    @Override
+    public void deleteAll(List<String> ids, long version) {
+        for (String id : ids) {
+            deleteById(id, version);
+        }
+    }
+}
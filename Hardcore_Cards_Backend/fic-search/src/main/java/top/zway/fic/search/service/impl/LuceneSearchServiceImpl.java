@@ -0,0 +1,189 @@
+package top.zway.fic.search.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.SearchConstants;
+import top.zway.fic.base.entity.VO.SearchPageVO;
+import top.zway.fic.base.entity.VO.SearchVO;
+import top.zway.fic.search.dao.ShareKanbanDao;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.handler.KanbanIndexDocBuilder;
+import top.zway.fic.search.handler.KanbanPartialUpdateHandler;
+import top.zway.fic.search.lucene.LuceneIndexManager;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.search.service.SearchService;
+import top.zway.fic.search.util.SearchResultUtil;
+import top.zway.fic.web.exception.BizException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 内嵌lucene搜索，排序和游标与es实现一致
+ * 单机内存映射读取已足够快，不再经过结果缓存
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+@RequiredArgsConstructor
+@Slf4j
+public class LuceneSearchServiceImpl implements SearchService {
+    private final LuceneIndexManager luceneIndexManager;
+    private final ShareKanbanDao shareKanbanDao;
+    private final KanbanIndexDocBuilder kanbanIndexDocBuilder;
+    private final ContentIndexService contentIndexService;
+
+    private static final Sort SORT = new Sort(SortField.FIELD_SCORE,
+            new SortField(LuceneIndexManager.ID_FIELD, SortField.Type.STRING));
+
+    @Override
+    public SearchPageVO search(String key, Long userId, Integer size, String cursor) {
+        int pageSize = SearchResultUtil.normalizePageSize(size);
+        List<Long> kanbanIdList = shareKanbanDao.listKanbanIdByUserId(userId);
+        Query contentQuery = key == null ? null : new QueryBuilder(luceneIndexManager.getAnalyzer())
+                .createBooleanQuery(LuceneIndexManager.CONTENT_FIELD, key);
+        if (kanbanIdList.isEmpty() || contentQuery == null) {
+            return new SearchPageVO(Collections.emptyList(), null, 0);
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(LongPoint.newSetQuery(LuceneIndexManager.KANBAN_ID_FIELD, kanbanIdList), BooleanClause.Occur.FILTER)
+                .add(contentQuery, BooleanClause.Occur.MUST)
+                .build();
+        Highlighter highlighter = new Highlighter(
+                new SimpleHTMLFormatter(SearchConstants.HIGHLIGHT_PRE_TAG, SearchConstants.HIGHLIGHT_POST_TAG),
+                new QueryScorer(contentQuery, LuceneIndexManager.CONTENT_FIELD));
+        highlighter.setTextFragmenter(new SimpleFragmenter(SearchConstants.HIGHLIGHT_FRAGMENT_SIZE));
+        IndexSearcher searcher = null;
+        try {
+            searcher = luceneIndexManager.acquire();
+            // 多取一条用于判断是否还有下一页
+            TopDocs topDocs;
+            if (cursor != null && !cursor.isEmpty()) {
+                Object[] sortValues = SearchResultUtil.decodeCursor(cursor);
+                float score = (Float) sortValues[0];
+                FieldDoc after = new FieldDoc(Integer.MAX_VALUE, score,
+                        new Object[]{score, new BytesRef((String) sortValues[1])});
+                topDocs = searcher.searchAfter(after, query, pageSize + 1, SORT, true, false);
+            } else {
+                topDocs = searcher.search(query, pageSize + 1, SORT, true, false);
+            }
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            int count = Math.min(scoreDocs.length, pageSize);
+            List<SearchVO> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ContentInfoIndexEsDO contentInfoIndexEsDO = LuceneIndexManager.toIndexDO(searcher.doc(scoreDocs[i].doc));
+                SearchVO searchVO = toSearchVO(contentInfoIndexEsDO);
+                String[] fragments = highlighter.getBestFragments(luceneIndexManager.getAnalyzer(),
+                        LuceneIndexManager.CONTENT_FIELD, contentInfoIndexEsDO.getContent(),
+                        SearchConstants.HIGHLIGHT_FRAGMENT_NUMBER);
+                if (fragments.length > 0) {
+                    searchVO.setHighlights(Arrays.asList(fragments));
+                }
+                items.add(searchVO);
+            }
+            String nextCursor = null;
+            if (scoreDocs.length > pageSize) {
+                Object[] fields = ((FieldDoc) scoreDocs[pageSize - 1]).fields;
+                nextCursor = SearchResultUtil.encodeCursor(fields[0], ((BytesRef) fields[1]).utf8ToString());
+            }
+            return SearchResultUtil.toPage(items, nextCursor);
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            log.error("搜索失败，key：{}", key, e);
+            throw new BizException("搜索失败");
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public List<SearchVO> suggest(String prefix, Long userId, Integer size) {
+        int suggestSize = SearchResultUtil.normalizeSuggestSize(size);
+        List<Long> kanbanIdList = shareKanbanDao.listKanbanIdByUserId(userId);
+        if (kanbanIdList.isEmpty() || prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 与es的autocomplete_search一致：与索引相同按非字母数字切分、转小写、截断，每个词都要命中
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(LongPoint.newSetQuery(LuceneIndexManager.KANBAN_ID_FIELD, kanbanIdList), BooleanClause.Occur.FILTER);
+        boolean hasToken = false;
+        for (String token : prefix.toLowerCase(Locale.ROOT).split(LuceneIndexManager.PREFIX_SEPARATOR)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.length() > LuceneIndexManager.MAX_PREFIX_GRAM) {
+                token = token.substring(0, LuceneIndexManager.MAX_PREFIX_GRAM);
+            }
+            builder.add(new TermQuery(new Term(LuceneIndexManager.CONTENT_PREFIX_FIELD, token)), BooleanClause.Occur.MUST);
+            hasToken = true;
+        }
+        if (!hasToken) {
+            return Collections.emptyList();
+        }
+        IndexSearcher searcher = null;
+        try {
+            searcher = luceneIndexManager.acquire();
+            List<SearchVO> ret = new ArrayList<>();
+            for (ScoreDoc scoreDoc : searcher.search(builder.build(), suggestSize).scoreDocs) {
+                ret.add(toSearchVO(LuceneIndexManager.toIndexDO(searcher.doc(scoreDoc.doc))));
+            }
+            return ret;
+        } catch (IOException e) {
+            log.error("联想失败，prefix：{}", prefix, e);
+            throw new BizException("联想失败");
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public void fullUpdate(Long kanbanId) {
+        // 先取版本再读库，期间的部分更新版本更大，不会被覆盖
+        long version = contentIndexService.nextVersion();
+        List<ContentInfoIndexEsDO> docs = kanbanIndexDocBuilder.build(kanbanId);
+        if (docs.isEmpty()) {
+            contentIndexService.deleteById(KanbanPartialUpdateHandler.ID_PREFIX + kanbanId, version);
+        } else {
+            contentIndexService.saveAll(docs, version);
+        }
+    }
+
+    private SearchVO toSearchVO(ContentInfoIndexEsDO contentInfoIndexEsDO) {
+        return new SearchVO(contentInfoIndexEsDO.getContent(),
+                SearchResultUtil.getContentType(contentInfoIndexEsDO), contentInfoIndexEsDO.getKanbanId());
+    }
+
+    private void release(IndexSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
+        try {
+            luceneIndexManager.release(searcher);
+        } catch (IOException e) {
+            log.error("释放lucene searcher失败", e);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package top.zway.fic.search.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.crypto.SecureUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.entity.VO.ReconcileReportVO;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.dao.KanbanDao;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.handler.KanbanIndexDocBuilder;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.search.service.ReconcileService;
+import top.zway.fic.search.service.SearchCacheService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MySQL与ES对账
+ * 两边都按看板id升序流式读取（MySQL按id分批，ES用scroll），逐个看板比对文档校验和，
+ * 内存中只保留当前看板的数据
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ReconcileServiceImpl implements ReconcileService {
+    private final RestHighLevelClient restHighLevelClient;
+    private final RedisUtils redisUtils;
+    private final KanbanDao kanbanDao;
+    private final KanbanIndexDocBuilder kanbanIndexDocBuilder;
+    private final ContentIndexService contentIndexService;
+    private final SearchCacheService searchCacheService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.reconcile.interval-minutes:360}")
+    private long intervalMinutes;
+
+    @Value("${search.reconcile.batch-size:500}")
+    private int batchSize;
+
+    private static final String[] CHECKSUM_FIELDS = {"id", "kanbanId", "columnId", "cardId", "tagId", "content"};
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(5);
+
+    /**
+     * 仍由本实例持有时续期
+     */
+    private static final RedisScript<Long> EXTEND_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('expire', KEYS[1], ARGV[2]) end " +
+                    "return 0", Long.class);
+
+    /**
+     * 仍由本实例持有时删除，不会删掉过期后被其他实例取得的锁
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) end " +
+                    "return 0", Long.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong lastDrift = new AtomicLong(0);
+    private volatile ReconcileReportVO lastReport;
+    private ScheduledExecutorService executorService;
+    private Counter missingCounter;
+    private Counter staleCounter;
+    private Counter orphanCounter;
+    private Timer reconcileTimer;
+
+    @PostConstruct
+    public void init() {
+        missingCounter = meterRegistry.counter("search.reconcile.drift", "type", "missing");
+        staleCounter = meterRegistry.counter("search.reconcile.drift", "type", "stale");
+        orphanCounter = meterRegistry.counter("search.reconcile.drift", "type", "orphan");
+        reconcileTimer = meterRegistry.timer("search.reconcile.duration");
+        meterRegistry.gauge("search.reconcile.last.drift", lastDrift);
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMinutes > 0) {
+            executorService.scheduleWithFixedDelay(this::reconcile, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    @Override
+    public boolean reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executorService.execute(() -> {
+            try {
+                runWithLock();
+            } catch (Exception e) {
+                log.error("索引对账失败", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public ReconcileReportVO getLastReport() {
+        return lastReport;
+    }
+
+    private void runWithLock() throws IOException {
+        if (!redisUtils.setIfAbsent(RedisConstant.SEARCH_RECONCILE_LOCK, instanceId,
+                RedisConstant.SEARCH_RECONCILE_LOCK_EXP_TIME)) {
+            log.info("其他实例正在执行索引对账，跳过");
+            return;
+        }
+        try {
+            ReconcileReportVO report = new ReconcileReportVO();
+            report.setStartTime(new Date());
+            long start = System.currentTimeMillis();
+            doReconcile(report);
+            report.setCostMillis(System.currentTimeMillis() - start);
+            reconcileTimer.record(report.getCostMillis(), TimeUnit.MILLISECONDS);
+            lastDrift.set(report.getDriftCount());
+            lastReport = report;
+            log.info("索引对账完成：{}", report);
+        } finally {
+            redisUtils.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(RedisConstant.SEARCH_RECONCILE_LOCK),
+                    instanceId);
+        }
+    }
+
+    /**
+     * 按看板id归并两边的有序流，只在一边出现的看板也走同一比对逻辑
+     * 每个看板开始前续期对账锁，锁已失效时停止，避免与其他实例同时对账
+     */
+    private void doReconcile(ReconcileReportVO report) throws IOException {
+        KanbanIdCursor kanbanIdCursor = new KanbanIdCursor();
+        EsKanbanCursor esKanbanCursor = new EsKanbanCursor();
+        try {
+            Long mysqlKanbanId = kanbanIdCursor.peek();
+            Long esKanbanId = esKanbanCursor.peek();
+            while (mysqlKanbanId != null || esKanbanId != null) {
+                extendLock();
+                if (esKanbanId == null || (mysqlKanbanId != null && mysqlKanbanId < esKanbanId)) {
+                    reconcileKanban(mysqlKanbanId, new HashMap<>(0), report);
+                    kanbanIdCursor.next();
+                } else if (mysqlKanbanId == null || esKanbanId < mysqlKanbanId) {
+                    reconcileKanban(esKanbanId, esKanbanCursor.next(), report);
+                } else {
+                    reconcileKanban(mysqlKanbanId, esKanbanCursor.next(), report);
+                    kanbanIdCursor.next();
+                }
+                mysqlKanbanId = kanbanIdCursor.peek();
+                esKanbanId = esKanbanCursor.peek();
+            }
+        } finally {
+            esKanbanCursor.close();
+        }
+    }
+
+    /**
+     * 比对一个看板，只写入缺失或内容不一致的文档，只删除数据库中已不存在的文档
+     *
+     * @param kanbanId    看板
+     * @param esChecksums ES中该看板的 文档id -> 校验和
+     */
+    private void reconcileKanban(Long kanbanId, Map<String, String> esChecksums, ReconcileReportVO report) {
+        long version = contentIndexService.nextVersion();
+        List<ContentInfoIndexEsDO> docs = kanbanIndexDocBuilder.build(kanbanId);
+        List<ContentInfoIndexEsDO> toSave = new ArrayList<>();
+        for (ContentInfoIndexEsDO doc : docs) {
+            String esChecksum = esChecksums.remove(doc.getId());
+            if (esChecksum == null) {
+                report.setMissingCount(report.getMissingCount() + 1);
+                missingCounter.increment();
+                toSave.add(doc);
+            } else if (!esChecksum.equals(checksum(doc))) {
+                report.setStaleCount(report.getStaleCount() + 1);
+                staleCounter.increment();
+                toSave.add(doc);
+            }
+        }
+        List<String> orphanIds = new ArrayList<>(esChecksums.keySet());
+        report.setOrphanCount(report.getOrphanCount() + orphanIds.size());
+        orphanCounter.increment(orphanIds.size());
+        report.setKanbanCount(report.getKanbanCount() + 1);
+        report.setDocCount(report.getDocCount() + docs.size() + orphanIds.size());
+        if (toSave.isEmpty() && orphanIds.isEmpty()) {
+            return;
+        }
+        contentIndexService.saveAll(toSave, version);
+        contentIndexService.deleteAll(orphanIds, version);
+        searchCacheService.bumpGeneration(kanbanId);
+        report.setRepairedKanbanCount(report.getRepairedKanbanCount() + 1);
+        log.info("看板{}索引修复：写入{}，删除{}", kanbanId, toSave.size(), orphanIds.size());
+    }
+
+    private void extendLock() {
+        Long extended = redisUtils.execute(EXTEND_LOCK_SCRIPT,
+                Collections.singletonList(RedisConstant.SEARCH_RECONCILE_LOCK),
+                instanceId, RedisConstant.SEARCH_RECONCILE_LOCK_EXP_TIME);
+        if (extended == null || extended == 0) {
+            throw new IllegalStateException("对账锁已失效，停止对账");
+        }
+    }
+
+    private static String checksum(ContentInfoIndexEsDO doc) {
+        return SecureUtil.md5(doc.getKanbanId() + "|" + doc.getColumnId() + "|" + doc.getCardId() + "|"
+                + doc.getTagId() + "|" + doc.getContent());
+    }
+
+    /**
+     * MySQL看板id游标，按id分批读取
+     */
+    private class KanbanIdCursor {
+        private List<Long> batch = Collections.emptyList();
+        private int index = 0;
+        private long lastKanbanId = 0;
+        private boolean exhausted = false;
+
+        Long peek() {
+            if (index >= batch.size() && !exhausted) {
+                batch = kanbanDao.listKanbanIdAfter(lastKanbanId, batchSize);
+                index = 0;
+                exhausted = batch.size() < batchSize;
+                if (!batch.isEmpty()) {
+                    lastKanbanId = batch.get(batch.size() - 1);
+                }
+            }
+            return index < batch.size() ? batch.get(index) : null;
+        }
+
+        void next() {
+            index++;
+        }
+    }
+
+    /**
+     * ES文档游标，scroll按 看板id, 文档id 升序读取，每次取出一个看板的全部文档
+     */
+    private class EsKanbanCursor {
+        private String scrollId;
+        private SearchHit[] hits;
+        private int index = 0;
+
+        EsKanbanCursor() throws IOException {
+            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                    .query(QueryBuilders.matchAllQuery())
+                    .size(batchSize)
+                    .sort("kanbanId", SortOrder.ASC)
+                    .sort("id", SortOrder.ASC)
+                    .fetchSource(CHECKSUM_FIELDS, null);
+            SearchResponse response = restHighLevelClient.search(new SearchRequest(ContentInfoIndexEsDO.INDEX_NAME)
+                    .source(sourceBuilder).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT);
+            scrollId = response.getScrollId();
+            hits = response.getHits().getHits();
+        }
+
+        Long peek() throws IOException {
+            if (index >= hits.length && hits.length > 0) {
+                SearchResponse response = restHighLevelClient.scroll(
+                        new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT);
+                scrollId = response.getScrollId();
+                hits = response.getHits().getHits();
+                index = 0;
+            }
+            return index < hits.length ? ((Number) hits[index].getSourceAsMap().get("kanbanId")).longValue() : null;
+        }
+
+        Map<String, String> next() throws IOException {
+            Long kanbanId = peek();
+            Map<String, String> checksums = new HashMap<>();
+            while (kanbanId != null && kanbanId.equals(peek())) {
+                ContentInfoIndexEsDO doc = toIndexDO(hits[index++]);
+                checksums.put(doc.getId(), checksum(doc));
+            }
+            return checksums;
+        }
+
+        void close() {
+            if (scrollId == null) {
+                return;
+            }
+            ClearScrollRequest request = new ClearScrollRequest();
+            request.addScrollId(scrollId);
+            try {
+                restHighLevelClient.clearScroll(request, RequestOptions.DEFAULT);
+            } catch (IOException e) {
+                log.warn("清除scroll失败", e);
+            }
+        }
+
+        private ContentInfoIndexEsDO toIndexDO(SearchHit hit) {
+            return BeanUtil.toBean(hit.getSourceAsMap(), ContentInfoIndexEsDO.class);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package top.zway.fic.search.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.dao.KanbanDao;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.search.handler.KanbanIndexDocBuilder;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.search.service.ReindexService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexServiceImpl implements ReindexService {
+    private final RestHighLevelClient restHighLevelClient;
+    private final RedisUtils redisUtils;
+    private final KanbanDao kanbanDao;
+    private final KanbanIndexDocBuilder kanbanIndexDocBuilder;
+    private final SearchMetrics searchMetrics;
+    private final ContentIndexService contentIndexService;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${search.reindex.parallelism:4}")
+    private int parallelism;
+
+    @Value("${search.reindex.bulk-size:500}")
+    private int bulkSize;
+
+    private static final String VERSION_SEPARATOR = "_v";
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    @Override
+    public boolean reindex() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                doReindex();
+            } catch (Exception e) {
+                log.error("重建索引失败", e);
+            } finally {
+                redisUtils.del(RedisConstant.SEARCH_REINDEX_TARGET);
+                running.set(false);
+            }
+        }, "search-reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void doReindex() throws Exception {
+        long start = System.currentTimeMillis();
+        String newIndex = ContentInfoIndexEsDO.INDEX_NAME + VERSION_SEPARATOR + start;
+        createIndex(newIndex);
+        // 先开双写再读库，构建期间的修改不会丢
+        redisUtils.set(RedisConstant.SEARCH_REINDEX_TARGET, newIndex, RedisConstant.SEARCH_REINDEX_TARGET_EXP_TIME);
+        List<Long> kanbanIds = kanbanDao.listKanbanId();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>(kanbanIds.size());
+            for (Long kanbanId : kanbanIds) {
+                futures.add(executorService.submit(() -> {
+                    bulkIndexKanban(newIndex, kanbanId);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        // 恢复刷新并立即刷新一次，切换后马上可搜
+        restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(newIndex)
+                .settings(Settings.builder().putNull(REFRESH_INTERVAL)), RequestOptions.DEFAULT);
+        restHighLevelClient.indices().refresh(new RefreshRequest(newIndex), RequestOptions.DEFAULT);
+        swapAlias(newIndex);
+        log.info("重建索引{}完成，看板数{}，耗时{}ms", newIndex, kanbanIds.size(), System.currentTimeMillis() - start);
+    }
+
+    private void createIndex(String indexName) throws IOException {
+        // 构建期间关闭自动刷新，减少segment合并
+        Settings settings = Settings.builder()
+                .loadFromSource(ResourceUtil.readUtf8Str(ContentInfoIndexEsDO.SETTING_PATH.substring(1)), XContentType.JSON)
+                .put(REFRESH_INTERVAL, "-1")
+                .build();
+        CreateIndexRequest request = new CreateIndexRequest(indexName)
+                .settings(settings)
+                .mapping(ContentInfoIndexEsDO.TYPE_NAME,
+                        ResourceUtil.readUtf8Str(ContentInfoIndexEsDO.MAPPING_PATH.substring(1)), XContentType.JSON);
+        restHighLevelClient.indices().create(request, RequestOptions.DEFAULT);
+    }
+
+    private void bulkIndexKanban(String indexName, Long kanbanId) throws IOException {
+        // 与全量更新一致，先取版本再读库；双写已写入更新版本的文档时冲突被忽略，
+        // 切换别名后队列中较旧的事件也不会覆盖快照
+        long version = contentIndexService.nextVersion();
+        List<ContentInfoIndexEsDO> docs = kanbanIndexDocBuilder.build(kanbanId);
+        for (int from = 0; from < docs.size(); from += bulkSize) {
+            BulkRequest bulkRequest = new BulkRequest();
+            for (ContentInfoIndexEsDO doc : docs.subList(from, Math.min(from + bulkSize, docs.size()))) {
+                bulkRequest.add(new IndexRequest(indexName, ContentInfoIndexEsDO.TYPE_NAME, doc.getId())
+                        .source(BeanUtil.beanToMap(doc, false, true))
+                        .versionType(VersionType.EXTERNAL)
+                        .version(version));
+            }
+            BulkResponse bulkResponse = restHighLevelClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+            searchMetrics.bulkSize(bulkRequest.numberOfActions());
+            if (bulkResponse.hasFailures()) {
+                for (BulkItemResponse item : bulkResponse.getItems()) {
+                    if (item.isFailed() && item.status() != RestStatus.CONFLICT) {
+                        throw new IOException("看板" + kanbanId + "写入新索引失败：" + item.getFailureMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个请求内移除旧索引上的别名并加到新索引上，ES保证原子性
+     */
+    private void swapAlias(String newIndex) throws IOException {
+        String alias = ContentInfoIndexEsDO.INDEX_NAME;
+        Set<String> oldIndices = restHighLevelClient.indices()
+                .getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases().keySet();
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(newIndex).alias(alias));
+        for (String oldIndex : oldIndices) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(oldIndex).alias(alias));
+        }
+        // 旧版本直接以别名为名建了实体索引，切换时一并删除
+        boolean concreteIndex = oldIndices.isEmpty() && restHighLevelClient.indices()
+                .exists(new GetIndexRequest().indices(alias), RequestOptions.DEFAULT);
+        if (concreteIndex) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(alias));
+        }
+        restHighLevelClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        if (!oldIndices.isEmpty()) {
+            restHighLevelClient.indices().delete(new DeleteIndexRequest(oldIndices.toArray(new String[0])),
+                    RequestOptions.DEFAULT);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package top.zway.fic.search.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.constant.SearchConstants;
+import top.zway.fic.base.entity.VO.SearchPageVO;
+import top.zway.fic.redis.util.RedisUtils;
+import top.zway.fic.search.service.SearchCacheService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchCacheServiceImpl implements SearchCacheService {
+    private final RedisUtils redisUtils;
+
+    /**
+     * 写入后索引异步刷新，刷新前的搜索可能在新代数下缓存修改前的结果
+     * 延迟到刷新完成后再递增一次代数，需大于es的refresh_interval（默认1s）和lucene的reader刷新间隔
+     */
+    @Value("${search.cache.rebump-delay-ms:1500}")
+    private long rebumpDelayMs;
+
+    private ScheduledExecutorService scheduler;
+
+    private final LRUCache<String, SearchPageVO> localCache = CacheUtil.newLRUCache(
+            SearchConstants.LOCAL_CACHE_CAPACITY, SearchConstants.LOCAL_CACHE_EXPIRE_MILLISECOND);
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-cache-rebump");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public String buildCacheKey(Long userId, String key, int size, String cursor, List<Long> kanbanIds) {
+        List<Long> sortedKanbanIds = new ArrayList<>(kanbanIds);
+        Collections.sort(sortedKanbanIds);
+        List<String> generationKeys = new ArrayList<>(sortedKanbanIds.size());
+        for (Long kanbanId : sortedKanbanIds) {
+            generationKeys.add(RedisConstant.KANBAN_SEARCH_GENERATION_PREFIX + kanbanId);
+        }
+        List<Object> generations = redisUtils.mget(generationKeys);
+        StringBuilder sb = new StringBuilder();
+        sb.append(normalize(key)).append('|').append(size).append('|').append(cursor == null ? "" : cursor);
+        for (int i = 0; i < sortedKanbanIds.size(); i++) {
+            Object generation = generations == null ? null : generations.get(i);
+            sb.append('|').append(sortedKanbanIds.get(i)).append(':').append(Convert.toLong(generation, 0L));
+        }
+        return RedisConstant.SEARCH_CACHE_PREFIX + userId + "_" + SecureUtil.md5(sb.toString());
+    }
+
+    /**
+     * 忽略大小写和多余空白，让等价的关键词命中同一份缓存
+     */
+    private String normalize(String key) {
+        return key == null ? "" : key.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    @Override
+    public SearchPageVO get(String cacheKey) {
+        SearchPageVO searchPageVO = localCache.get(cacheKey);
+        if (searchPageVO != null) {
+            return searchPageVO;
+        }
+        Object obj = redisUtils.get(cacheKey);
+        if (obj instanceof String) {
+            searchPageVO = JSONUtil.toBean((String) obj, SearchPageVO.class);
+            localCache.put(cacheKey, searchPageVO);
+            return searchPageVO;
+        }
+        return null;
+    }
+
+    @Override
+    public void put(String cacheKey, SearchPageVO searchPageVO) {
+        localCache.put(cacheKey, searchPageVO);
+        redisUtils.set(cacheKey, JSONUtil.toJsonStr(searchPageVO), RedisConstant.SEARCH_CACHE_EXPIRE_SECOND);
+    }
+
+    @Override
+    public void bumpGeneration(Long kanbanId) {
+        incrGeneration(kanbanId);
+        scheduler.schedule(() -> {
+            try {
+                incrGeneration(kanbanId);
+            } catch (Exception e) {
+                log.warn("延迟递增看板{}搜索缓存代数失败", kanbanId, e);
+            }
+        }, rebumpDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void incrGeneration(Long kanbanId) {
+        redisUtils.incr(RedisConstant.KANBAN_SEARCH_GENERATION_PREFIX + kanbanId, 1);
+    }
+}
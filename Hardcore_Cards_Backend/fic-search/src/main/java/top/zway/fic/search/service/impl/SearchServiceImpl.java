@@ -1,85 +1,176 @@
 package top.zway.fic.search.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.text.Text;
 import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.Operator;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.TermQueryBuilder;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import top.zway.fic.base.constant.RedisConstant;
-import top.zway.fic.base.entity.BO.SearchUpdateBO;
-import top.zway.fic.base.entity.DO.CardDO;
-import top.zway.fic.base.entity.DO.KanbanColumnDO;
-import top.zway.fic.base.entity.DO.TagDO;
+import top.zway.fic.base.constant.SearchConstants;
+import top.zway.fic.base.entity.VO.SearchPageVO;
 import top.zway.fic.base.entity.VO.SearchVO;
-import top.zway.fic.redis.util.RedisUtils;
-import top.zway.fic.search.config.SearchUpdateRabbitMqConfig;
-import top.zway.fic.search.dao.*;
+import top.zway.fic.search.dao.ShareKanbanDao;
 import top.zway.fic.search.entity.ContentInfoIndexEsDO;
-import top.zway.fic.search.handler.CardPartialUpdateHandler;
-import top.zway.fic.search.handler.ColumnPartialUpdateHandler;
+import top.zway.fic.search.handler.KanbanIndexDocBuilder;
 import top.zway.fic.search.handler.KanbanPartialUpdateHandler;
-import top.zway.fic.search.handler.TagPartialUpdateHandler;
+import top.zway.fic.search.metrics.SearchMetrics;
+import top.zway.fic.search.service.ContentIndexService;
+import top.zway.fic.search.service.SearchCacheService;
 import top.zway.fic.search.service.SearchService;
+import top.zway.fic.search.util.SearchResultUtil;
+import top.zway.fic.web.exception.BizException;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "elasticsearch", matchIfMissing = true)
 @RequiredArgsConstructor
+@Slf4j
 public class SearchServiceImpl implements SearchService {
-    private final ContentInfoIndexEsDao contentInfoIndexEsDao;
+    private final RestHighLevelClient restHighLevelClient;
     private final ShareKanbanDao shareKanbanDao;
-    private final ColumnDao columnDao;
-    private final CardDao cardDao;
-    private final TagDao tagDao;
-    private final CardPartialUpdateHandler cardPartialUpdateHandler;
-    private final ColumnPartialUpdateHandler columnPartialUpdateHandler;
-    private final KanbanPartialUpdateHandler kanbanPartialUpdateHandler;
-    private final TagPartialUpdateHandler tagPartialUpdateHandler;
+    private final KanbanIndexDocBuilder kanbanIndexDocBuilder;
+    private final ContentIndexService contentIndexService;
+    private final SearchCacheService searchCacheService;
+    private final SearchMetrics searchMetrics;
+
+    private static final String CONTENT_FIELD = "content";
+    private static final String TIE_BREAKER_FIELD = "id";
+    private static final String[] SUGGEST_FETCH_FIELDS = {"kanbanId", "columnId", "cardId", "tagId", CONTENT_FIELD};
+
+    @Override
+    public SearchPageVO search(String key, Long userId, Integer size, String cursor) {
+        int pageSize = SearchResultUtil.normalizePageSize(size);
+        List<Long> kanbanIdList = shareKanbanDao.listKanbanIdByUserId(userId);
+        if (kanbanIdList.isEmpty()) {
+            return new SearchPageVO(Collections.emptyList(), null, 0);
+        }
+        // 查缓存
+        String cacheKey = searchCacheService.buildCacheKey(userId, key, pageSize, cursor, kanbanIdList);
+        SearchPageVO cached = searchCacheService.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        long[] kanbanIds = kanbanIdList.stream().mapToLong(Long::longValue).toArray();
+        // 权限过滤放在filter里，不参与打分且可被ES缓存
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termsQuery("kanbanId", kanbanIds))
+                .must(QueryBuilders.matchQuery(CONTENT_FIELD, key));
+        // 多取一条用于判断是否还有下一页
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(boolQueryBuilder)
+                .size(pageSize + 1)
+                .trackTotalHits(false)
+                .sort(SortBuilders.scoreSort().order(SortOrder.DESC))
+                .sort(SortBuilders.fieldSort(TIE_BREAKER_FIELD).order(SortOrder.ASC))
+                .highlighter(new HighlightBuilder()
+                        .field(CONTENT_FIELD)
+                        .preTags(SearchConstants.HIGHLIGHT_PRE_TAG)
+                        .postTags(SearchConstants.HIGHLIGHT_POST_TAG)
+                        .fragmentSize(SearchConstants.HIGHLIGHT_FRAGMENT_SIZE)
+                        .numOfFragments(SearchConstants.HIGHLIGHT_FRAGMENT_NUMBER));
+        if (cursor != null && !cursor.isEmpty()) {
+            sourceBuilder.searchAfter(SearchResultUtil.decodeCursor(cursor));
+        }
+        SearchResponse response;
+        try {
+            response = restHighLevelClient.search(new SearchRequest(ContentInfoIndexEsDO.INDEX_NAME).source(sourceBuilder),
+                    RequestOptions.DEFAULT);
+            searchMetrics.esRoundTrip();
+        } catch (IOException e) {
+            log.error("搜索失败，key：{}", key, e);
+            throw new BizException("搜索失败");
+        }
+        SearchHit[] hits = response.getHits().getHits();
+        int count = Math.min(hits.length, pageSize);
+        List<SearchVO> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(toSearchVO(hits[i]));
+        }
+        String nextCursor = null;
+        if (hits.length > pageSize) {
+            Object[] sortValues = hits[pageSize - 1].getSortValues();
+            nextCursor = SearchResultUtil.encodeCursor(sortValues[0], sortValues[1]);
+        }
+        SearchPageVO searchPageVO = SearchResultUtil.toPage(items, nextCursor);
+        searchCacheService.put(cacheKey, searchPageVO);
+        return searchPageVO;
+    }
 
     @Override
-    public List<SearchVO> search(String key, Long userId) {
+    public List<SearchVO> suggest(String prefix, Long userId, Integer size) {
+        int suggestSize = SearchResultUtil.normalizeSuggestSize(size);
         long[] kanbanIds = shareKanbanDao.listKanbanIdByUserId(userId).stream().mapToLong(Long::longValue).toArray();
-        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
-        List<QueryBuilder> must = boolQueryBuilder.must();
-        must.add(QueryBuilders.termsQuery("kanbanId", kanbanIds));
-        must.add(QueryBuilders.matchQuery("content", key));
-        Iterable<ContentInfoIndexEsDO> result = contentInfoIndexEsDao.search(boolQueryBuilder);
+        if (kanbanIds.length == 0 || prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 只查edge-ngram子字段，不做高亮和总数统计
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termsQuery("kanbanId", kanbanIds))
+                .must(QueryBuilders.matchQuery(CONTENT_FIELD + "." + ContentInfoIndexEsDO.PREFIX_SUFFIX, prefix)
+                        .operator(Operator.AND));
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(boolQueryBuilder)
+                .size(suggestSize)
+                .trackTotalHits(false)
+                .fetchSource(SUGGEST_FETCH_FIELDS, null);
+        SearchResponse response;
+        try {
+            response = restHighLevelClient.search(new SearchRequest(ContentInfoIndexEsDO.INDEX_NAME).source(sourceBuilder),
+                    RequestOptions.DEFAULT);
+            searchMetrics.esRoundTrip();
+        } catch (IOException e) {
+            log.error("联想失败，prefix：{}", prefix, e);
+            throw new BizException("联想失败");
+        }
         List<SearchVO> ret = new ArrayList<>();
-        for (ContentInfoIndexEsDO contentInfoIndexEsDO : result) {
-            String type = null;
-            if (contentInfoIndexEsDO.getTagId() != null) {
-                type = "tag";
-            } else if (contentInfoIndexEsDO.getCardId() != null) {
-                type = "card";
-            } else if (contentInfoIndexEsDO.getColumnId() != null) {
-                type = "column";
-            } else {
-                type = "kanban";
-            }
-            ret.add(new SearchVO(contentInfoIndexEsDO.getContent(), type, contentInfoIndexEsDO.getKanbanId()));
+        for (SearchHit hit : response.getHits().getHits()) {
+            ret.add(toSearchVO(hit));
         }
         return ret;
     }
 
+    private SearchVO toSearchVO(SearchHit hit) {
+        ContentInfoIndexEsDO contentInfoIndexEsDO = BeanUtil.toBean(hit.getSourceAsMap(), ContentInfoIndexEsDO.class);
+        SearchVO searchVO = new SearchVO(contentInfoIndexEsDO.getContent(),
+                SearchResultUtil.getContentType(contentInfoIndexEsDO), contentInfoIndexEsDO.getKanbanId());
+        HighlightField highlightField = hit.getHighlightFields().get(CONTENT_FIELD);
+        if (highlightField != null && highlightField.getFragments() != null) {
+            List<String> highlights = new ArrayList<>(highlightField.getFragments().length);
+            for (Text fragment : highlightField.getFragments()) {
+                highlights.add(fragment.string());
+            }
+            searchVO.setHighlights(highlights);
+        }
+        return searchVO;
+    }
+
     @Override
     public void fullUpdate(Long kanbanId) {
-        kanbanPartialUpdateHandler.handlePartialUpdate(new SearchUpdateBO(kanbanId, null, kanbanId));
-        List<KanbanColumnDO> kanbanColumnDOS = columnDao.selectByKanbanId(kanbanId);
-        for (KanbanColumnDO kanbanColumnDO : kanbanColumnDOS) {
-            columnPartialUpdateHandler.handlePartialUpdate(new SearchUpdateBO(kanbanId, null,
-                    kanbanColumnDO.getColumnId()));
-        }
-        List<CardDO> cardDOS = cardDao.selectByKanbanId(kanbanId);
-        for (CardDO cardDO : cardDOS) {
-            cardPartialUpdateHandler.handlePartialUpdate(new SearchUpdateBO(kanbanId, null, cardDO.getCardId()));
+        // 先取版本再读库，期间的部分更新版本更大，不会被覆盖
+        long version = contentIndexService.nextVersion();
+        List<ContentInfoIndexEsDO> docs = kanbanIndexDocBuilder.build(kanbanId);
+        if (docs.isEmpty()) {
+            contentIndexService.deleteById(KanbanPartialUpdateHandler.ID_PREFIX + kanbanId, version);
+        } else {
+            contentIndexService.saveAll(docs, version);
         }
-        List<TagDO> tagDOS = tagDao.selectByKanbanId(kanbanId);
-        for (TagDO tagDO : tagDOS) {
-            tagPartialUpdateHandler.handlePartialUpdate(new SearchUpdateBO(kanbanId, null, tagDO.getTagId()));
-        }
-
+        searchCacheService.bumpGeneration(kanbanId);
     }
 }
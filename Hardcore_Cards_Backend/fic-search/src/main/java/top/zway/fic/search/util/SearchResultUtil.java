@@ -0,0 +1,83 @@
+package top.zway.fic.search.util;
+
+import cn.hutool.core.codec.Base64;
+import top.zway.fic.base.constant.SearchConstants;
+import top.zway.fic.base.entity.VO.SearchPageVO;
+import top.zway.fic.base.entity.VO.SearchVO;
+import top.zway.fic.search.entity.ContentInfoIndexEsDO;
+import top.zway.fic.web.exception.BizException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 各搜索引擎实现共用的结果处理
+ */
+public class SearchResultUtil {
+    private static final String CURSOR_SEPARATOR = ",";
+
+    public static int normalizePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return SearchConstants.DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, SearchConstants.MAX_PAGE_SIZE);
+    }
+
+    public static int normalizeSuggestSize(Integer size) {
+        if (size == null || size <= 0) {
+            return SearchConstants.DEFAULT_SUGGEST_SIZE;
+        }
+        return Math.min(size, SearchConstants.MAX_SUGGEST_SIZE);
+    }
+
+    public static String getContentType(ContentInfoIndexEsDO contentInfoIndexEsDO) {
+        if (contentInfoIndexEsDO.getTagId() != null) {
+            return "tag";
+        } else if (contentInfoIndexEsDO.getCardId() != null) {
+            return "card";
+        } else if (contentInfoIndexEsDO.getColumnId() != null) {
+            return "column";
+        } else {
+            return "kanban";
+        }
+    }
+
+    /**
+     * 按看板分组，LinkedHashMap保证组的顺序为组内最高相关度的顺序
+     */
+    public static SearchPageVO toPage(List<SearchVO> items, String nextCursor) {
+        Map<Long, List<SearchVO>> groupMap = new LinkedHashMap<>();
+        for (SearchVO item : items) {
+            groupMap.computeIfAbsent(item.getKanbanId(), k -> new ArrayList<>()).add(item);
+        }
+        List<SearchPageVO.KanbanGroup> groups = new ArrayList<>(groupMap.size());
+        for (Map.Entry<Long, List<SearchVO>> entry : groupMap.entrySet()) {
+            groups.add(new SearchPageVO.KanbanGroup(entry.getKey(), entry.getValue()));
+        }
+        return new SearchPageVO(groups, nextCursor, items.size());
+    }
+
+    /**
+     * 游标为 分数,文档id 的url安全base64，对应排序 分数降序, id升序
+     */
+    public static String encodeCursor(Object score, Object id) {
+        return Base64.encodeUrlSafe(score + CURSOR_SEPARATOR + id);
+    }
+
+    /**
+     * 解析游标
+     *
+     * @return [Float 分数, String 文档id]
+     */
+    public static Object[] decodeCursor(String cursor) {
+        try {
+            String decoded = Base64.decodeStr(cursor);
+            int index = decoded.indexOf(CURSOR_SEPARATOR);
+            return new Object[]{Float.parseFloat(decoded.substring(0, index)), decoded.substring(index + 1)};
+        } catch (RuntimeException e) {
+            throw new BizException("非法的搜索游标");
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package top.zway.fic.user.config;
 
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import top.zway.fic.base.constant.RedisConstant;
+import top.zway.fic.base.crypto.BoundedPasswordEncoder;
+import top.zway.fic.redis.util.RedisUtils;
 /**
  * 认证相关配置类
  * 配置密码加密等安全相关组件
@@ -14,11 +17,26 @@ public class AuthConfig {
      * 配置密码加密器
      * 使用BCrypt算法对用户密码进行单向加密
      * BCrypt是一种安全的哈希算法，每次加密结果都不同，但验证时能正确匹配
+     * 哈希在独立的有界线程池中计算，注册、改密高峰不会占满请求线程
+     * 未配置强度时与认证服务共用Redis中测量好的强度
      * 
      * @return BCrypt密码加密器实例
      */
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(BoundedPasswordEncoder.Settings settings, RedisUtils redisUtils){
+        return new BoundedPasswordEncoder(settings, measured -> {
+            redisUtils.setIfAbsent(RedisConstant.PASSWORD_HASH_STRENGTH, measured);
+            Object shared = redisUtils.get(RedisConstant.PASSWORD_HASH_STRENGTH);
+            return shared instanceof Number ? ((Number) shared).intValue() : measured;
+        });
+    }
+
+    /**
+     * 密码哈希配置，对应password.hashing
+     */
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    @ConfigurationProperties(prefix = "password.hashing")
+    public BoundedPasswordEncoder.Settings passwordHashingSettings(){
+        return new BoundedPasswordEncoder.Settings();
     }
 }
@@ -0,0 +1,28 @@
+package top.zway.fic.user.rpc;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * token撤销RPC服务接口
+ * 
+ * 功能说明：
+ * 1. 修改、重置密码后调用认证服务撤销该用户此前签发的全部token
+ * 2. 网关随后拒绝这些access token，对应的refresh token也不能再换取新token
+ * 
+ * 容错机制：
+ * - 认证服务不可用时调用降级实现，密码修改本身不受影响
+ */
+@FeignClient(contextId = "tokenRevocationRpcService", name = "fic-auth", fallback = TokenRevocationRpcServiceFallback.class)
+public interface TokenRevocationRpcService {
+
+    /**
+     * 撤销用户的全部token
+     * 
+     * @param userId 用户id
+     * @return 是否成功
+     */
+    @PostMapping("/rpc/token/revoke-user")
+    Boolean revokeUser(@RequestParam("userId") Long userId);
+}
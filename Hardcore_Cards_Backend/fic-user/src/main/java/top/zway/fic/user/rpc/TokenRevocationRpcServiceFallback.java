@@ -0,0 +1,14 @@
+package top.zway.fic.user.rpc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class TokenRevocationRpcServiceFallback implements TokenRevocationRpcService {
+    @Override
+    public Boolean revokeUser(Long userId) {
+        log.warn("撤销用户{}的token失败，认证服务不可用", userId);
+        return false;
+    }
+}
@@ -1,9 +1,12 @@
 package top.zway.fic.user.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import top.zway.fic.base.constant.RedisConstant;
 import top.zway.fic.base.constant.RoleConstant;
 import top.zway.fic.base.entity.DO.RoleUserDO;
 import top.zway.fic.base.entity.DO.UserDO;
@@ -11,6 +14,7 @@ import top.zway.fic.base.entity.DO.UserInfoDO;
 import top.zway.fic.user.dao.RoleUserDao;
 import top.zway.fic.user.dao.UserDao;
 import top.zway.fic.user.dao.UserInfoDao;
+import top.zway.fic.user.rpc.TokenRevocationRpcService;
 import top.zway.fic.user.service.UserSecurityService;
 
 import java.util.Collections;
@@ -19,9 +23,12 @@ import java.util.List;
 /**
  * 用户安全服务实现类
  * 实现用户注册等安全相关业务逻辑
+ * 密码、邮箱（用户名）变更后通知认证服务删除缓存的用户认证信息
+ * 密码变更后撤销该用户此前签发的全部token
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class UserSecurityServiceImpl implements UserSecurityService {
     
     // 注入数据访问层依赖
@@ -32,6 +39,12 @@ public class UserSecurityServiceImpl implements UserSecurityService {
     // 注入密码加密器
     private final PasswordEncoder passwordEncoder;
 
+    // 发布用户认证信息变更通知
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 撤销用户token
+    private final TokenRevocationRpcService tokenRevocationRpcService;
+
     /**
      * 用户注册业务逻辑实现
      * 使用事务保证数据一致性，任何一步失败都会回滚
@@ -75,19 +88,28 @@ public class UserSecurityServiceImpl implements UserSecurityService {
     @Override
     public boolean updatePassword(String oldpw, String newpd, Long userid) {
         // 检查旧密码输入是否正确
-        String password = userDao.getUserDoById(userid).getPassword();
-        boolean matches = passwordEncoder.matches(oldpw, password);
+        UserDO userDO = userDao.getUserDoById(userid);
+        boolean matches = passwordEncoder.matches(oldpw, userDO.getPassword());
         if (!matches) {
             return false;
         }
         // 更新
         int num = userDao.updatePassword(passwordEncoder.encode(newpd), userid);
+        if (num > 0) {
+            notifyUserDetailsChanged(userDO.getUsername());
+            tokenRevocationRpcService.revokeUser(userid);
+        }
         return num > 0;
     }
 
     @Override
     public boolean updateEmail(String email, Long userid) {
+        // 邮箱即用户名，旧用户名的缓存需要删除
+        UserDO userDO = userDao.getUserDoById(userid);
         int num = userDao.updateUsername(email, userid);
+        if (num > 0 && userDO != null) {
+            notifyUserDetailsChanged(userDO.getUsername());
+        }
         return num > 0;
     }
 
@@ -98,6 +120,26 @@ public class UserSecurityServiceImpl implements UserSecurityService {
 
     @Override
     public boolean resetPassword(String email, String password) {
-        return userDao.updatePasswordByUsername(passwordEncoder.encode(password), email) > 0;
+        boolean success = userDao.updatePasswordByUsername(passwordEncoder.encode(password), email) > 0;
+        if (success) {
+            notifyUserDetailsChanged(email);
+            Long userid = userDao.getUserId(email);
+            if (userid != null) {
+                tokenRevocationRpcService.revokeUser(userid);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * 通知认证服务删除该用户缓存的认证信息
+     * 发布失败不影响本次修改，认证服务的缓存会在短时间内过期
+     */
+    private void notifyUserDetailsChanged(String username) {
+        try {
+            redisTemplate.convertAndSend(RedisConstant.USER_DETAILS_CHANNEL, username);
+        } catch (Exception e) {
+            log.warn("发布用户认证信息变更通知失败：{}", username, e);
+        }
     }
 }
@@ -123,6 +123,23 @@ CREATE TABLE `kanban_column`  (
 -- Records of kanban_column
 -- ----------------------------
 
+-- ----------------------------
+-- Table structure for search_outbox
+-- ----------------------------
+DROP TABLE IF EXISTS `search_outbox`;
+CREATE TABLE `search_outbox`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '自增id，同一数据的变更按写入顺序递增',
+  `kanban_id` bigint(20) NOT NULL COMMENT '看板id',
+  `update_type` varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '类型 KANBAN/COLUMN/CARD/TAG',
+  `data` bigint(20) NOT NULL COMMENT '变更数据的id',
+  `column_id` bigint(20) NULL DEFAULT NULL COMMENT '所属列',
+  `card_id` bigint(20) NULL DEFAULT NULL COMMENT '所属卡片',
+  `content` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '变更后的内容',
+  `is_deleted` tinyint(1) UNSIGNED NOT NULL COMMENT '是否为删除 0否 1是',
+  `create_time` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '写入时间',
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '搜索更新发件箱，与业务写入同一事务，转发后删除' ROW_FORMAT = DYNAMIC;
+
 -- ----------------------------
 -- Table structure for share_kanban
 -- ----------------------------